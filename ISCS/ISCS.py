@@ -32,96 +32,95 @@ def load_config(config_path):
     product_service_url = f"http://{product_ip or product_config.get('ip', '127.0.0.1')}:{product_port or product_config.get('port', 15000)}"
     print(f"ISCS routing: user={user_service_url}, product={product_service_url}")
 
-def make_request(url, method, data=None):
-    """Make HTTP request to a service"""
+def make_request(url, method, data=None, request_id=None):
+    """Make HTTP request to a service; returns the status, body and Server-Timing header (or None)"""
+    headers = {'X-Request-Id': request_id} if request_id else {}
     try:
         if data and method in ("POST", "PUT", "PATCH"):
+            headers['Content-Type'] = 'application/json'
             req = urllib.request.Request(
                 url,
                 data=data.encode('utf-8'),
-                headers={'Content-Type': 'application/json'},
+                headers=headers,
                 method=method
             )
         else:
-            req = urllib.request.Request(url, method=method)
+            req = urllib.request.Request(url, headers=headers, method=method)
 
         with urllib.request.urlopen(req, timeout=10) as response:
-            return response.status, response.read().decode('utf-8')
+            return response.status, response.read().decode('utf-8'), response.headers.get('Server-Timing')
     except urllib.error.HTTPError as e:
-        return e.code, e.read().decode('utf-8')
+        return e.code, e.read().decode('utf-8'), e.headers.get('Server-Timing')
     except Exception as e:
-        return 500, json.dumps({"error": str(e)})
+        return 500, json.dumps({"error": str(e)}), None
 
 class ISCSHandler(BaseHTTPRequestHandler):
+    # HTTP/1.1 keeps OrderService's pooled connections open between requests
+    protocol_version = "HTTP/1.1"
+
+    def send_json(self, status, body, headers=None):
+        """Send a JSON response with an explicit Content-Length so the connection can be reused"""
+        payload = body.encode('utf-8')
+        self.send_response(status)
+        self.send_header('Content-Type', 'application/json')
+        self.send_header('Content-Length', str(len(payload)))
+        for name, value in (headers or {}).items():
+            self.send_header(name, value)
+        self.end_headers()
+        self.wfile.write(payload)
+
+    def forward(self, url, method, data=None):
+        """Proxy one call, echoing X-Request-Id and appending ISCS's own time to Server-Timing"""
+        started = time.perf_counter()
+        request_id = self.headers.get('X-Request-Id')
+        status, response, server_timing = make_request(url, method, data, request_id)
+        iscs = f"iscs;dur={(time.perf_counter() - started) * 1000:.3f}"
+        headers = {'Server-Timing': f"{server_timing}, {iscs}" if server_timing else iscs}
+        if request_id:
+            headers['X-Request-Id'] = request_id
+        self.send_json(status, response, headers)
+
     def do_POST(self):
         """Handle POST requests"""
         content_length = int(self.headers.get('Content-Length', 0))
         body = self.rfile.read(content_length).decode('utf-8')
 
         if self.path == '/user' or self.path == '/user/':
-            status, response = make_request(f"{user_service_url}/user", "POST", body)
+            self.forward(f"{user_service_url}/user", "POST", body)
         elif self.path == '/product' or self.path == '/product/':
-            status, response = make_request(f"{product_service_url}/product", "POST", body)
+            self.forward(f"{product_service_url}/product", "POST", body)
+        elif self.path == '/user/bulk':
+            self.forward(f"{user_service_url}/user/bulk", "POST", body)
+        elif self.path == '/product/bulk':
+            self.forward(f"{product_service_url}/product/bulk", "POST", body)
         elif self.path == '/user/shutdown':
-            status, response = make_request(f"{user_service_url}/user/shutdown", "POST", body)
+            self.forward(f"{user_service_url}/user/shutdown", "POST", body)
         elif self.path == '/product/shutdown':
-            status, response = make_request(f"{product_service_url}/product/shutdown", "POST", body)
+            self.forward(f"{product_service_url}/product/shutdown", "POST", body)
         else:
-            self.send_response(404)
-            self.send_header('Content-Type', 'application/json')
-            self.end_headers()
-            self.wfile.write(json.dumps({"error": "Not found"}).encode('utf-8'))
-            return
-
-        self.send_response(status)
-        self.send_header('Content-Type', 'application/json')
-        self.end_headers()
-        self.wfile.write(response.encode('utf-8'))
+            self.send_json(404, json.dumps({"error": "Not found"}))
 
     def do_GET(self):
         """Handle GET requests"""
         if self.path.startswith('/user/'):
             user_id = self.path.split('/')[2]
-            status, response = make_request(f"{user_service_url}/user/{user_id}", "GET")
-            self.send_response(status)
-            self.send_header('Content-Type', 'application/json')
-            self.end_headers()
-            self.wfile.write(response.encode('utf-8'))
+            self.forward(f"{user_service_url}/user/{user_id}", "GET")
         elif self.path.startswith('/product/'):
             product_id = self.path.split('/')[2]
-            status, response = make_request(f"{product_service_url}/product/{product_id}", "GET")
-            self.send_response(status)
-            self.send_header('Content-Type', 'application/json')
-            self.end_headers()
-            self.wfile.write(response.encode('utf-8'))
+            self.forward(f"{product_service_url}/product/{product_id}", "GET")
         elif self.path == '/health':
-            self.send_response(200)
-            self.send_header('Content-Type', 'application/json')
-            self.end_headers()
-            self.wfile.write(json.dumps({"status": "ISCS is running"}).encode('utf-8'))
+            self.send_json(200, json.dumps({"status": "ISCS is running"}))
         else:
-            self.send_response(404)
-            self.send_header('Content-Type', 'application/json')
-            self.end_headers()
-            self.wfile.write(json.dumps({"error": "Not found"}).encode('utf-8'))
+            self.send_json(404, json.dumps({"error": "Not found"}))
 
     def do_DELETE(self):
         """Handle DELETE requests"""
         if self.path == '/user/deleteall':
-            status, response = make_request(f"{user_service_url}/user/deleteall", "DELETE")
+            self.forward(f"{user_service_url}/user/deleteall", "DELETE")
         elif self.path == '/product/deleteall':
-            status, response = make_request(f"{product_service_url}/product/deleteall", "DELETE")
+            self.forward(f"{product_service_url}/product/deleteall", "DELETE")
         else:
-            self.send_response(404)
-            self.send_header('Content-Type', 'application/json')
-            self.end_headers()
-            self.wfile.write(json.dumps({"error": "Not found"}).encode('utf-8'))
-            return
-
-        self.send_response(status)
-        self.send_header('Content-Type', 'application/json')
-        self.end_headers()
-        self.wfile.write(response.encode('utf-8'))
+            self.send_json(404, json.dumps({"error": "Not found"}))
 
     def log_message(self, format, *args):
         """Suppress default logging"""
@@ -140,8 +139,10 @@ if __name__ == '__main__':
     ip = os.environ.get("ISCS_LISTEN_IP", iscs_config.get("ip", "127.0.0.1"))
     port = int(os.environ.get("ISCS_LISTEN_PORT", iscs_config.get("port", 14002)))
 
+    # Default listen backlog is 5, which resets connections under concurrent OrderService bursts
+    ThreadingHTTPServer.request_queue_size = 1024
+    ThreadingHTTPServer.allow_reuse_address = True
     server = ThreadingHTTPServer((ip, port), ISCSHandler)
-    server.allow_reuse_address = True
     print(f"ISCS starting on {ip}:{port}")
     server.serve_forever()
 
@@ -0,0 +1,141 @@
+package com.csc301.client;
+
+import com.csc301.config.LatencyMetrics;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GETs of /product/{id} from many threads at once, with ids drawn from a Zipfian distribution so a
+ * few products take most of the traffic, as in a flash sale. The stub standing in for ISCS takes
+ * latencyMs per call and counts the calls it gets. After each iteration the benchmark prints the
+ * downstream calls made per GET, which coalescing brings well below 1 as skew rises.
+ * Run with -Djmh.args="CoalescingBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(64)
+@Fork(1)
+public class CoalescingBenchmark {
+    private static final byte[] PRODUCT_JSON =
+            "{\"id\":1,\"name\":\"p1\",\"description\":\"\",\"price\":1.0,\"quantity\":100}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"false", "true"})
+    public boolean coalesce;
+
+    // Zipf exponent; 0 is uniform, 0.99 is the usual YCSB skew
+    @Param({"0", "0.99", "1.2"})
+    public double skew;
+
+    @Param("1000")
+    public int products;
+
+    @Param("2")
+    public int latencyMs;
+
+    private HttpServer stub;
+    private ExecutorService stubExecutor;
+    private ExecutorService clientExecutor;
+    private ServiceClient client;
+    private double[] cumulative;
+    private final LongAdder downstreamCalls = new LongAdder();
+    private final LongAdder gets = new LongAdder();
+
+    @Setup
+    public void startStub() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        stub.createContext("/", exchange -> {
+            downstreamCalls.increment();
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, PRODUCT_JSON.length);
+            exchange.getResponseBody().write(PRODUCT_JSON);
+            exchange.close();
+        });
+        stubExecutor = Executors.newFixedThreadPool(128);
+        stub.setExecutor(stubExecutor);
+        stub.start();
+
+        clientExecutor = Executors.newCachedThreadPool();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .executor(clientExecutor)
+                .build();
+        client = new ServiceClient(ReplicaPool.fixed("127.0.0.1", stub.getAddress().getPort()), httpClient, Duration.ofSeconds(10),
+                new LatencyMetrics(60_000), "product", null, 0, coalesce);
+
+        // P(rank k) is proportional to 1 / k^skew
+        cumulative = new double[products];
+        double total = 0;
+        for (int k = 0; k < products; k++) {
+            total += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = total;
+        }
+        for (int k = 0; k < products; k++) {
+            cumulative[k] /= total;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounts() {
+        downstreamCalls.reset();
+        gets.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportCalls() {
+        System.out.printf("%n  downstream calls per GET: %.3f (%d calls for %d GETs)%n",
+                downstreamCalls.sum() / (double) Math.max(1, gets.sum()), downstreamCalls.sum(), gets.sum());
+    }
+
+    @TearDown
+    public void stopStub() {
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public ServiceClient.ServiceResponse getProduct() {
+        gets.increment();
+        return client.requestAsync("/product/" + nextProduct(), "GET", "").join();
+    }
+
+    private int nextProduct() {
+        int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, products - 1) + 1;
+    }
+}
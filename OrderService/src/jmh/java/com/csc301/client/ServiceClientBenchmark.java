@@ -0,0 +1,89 @@
+package com.csc301.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a fresh ServiceClient per call (the old OrderController behaviour) with the shared,
+ * pooled client against an in-process stub standing in for ISCS.
+ * Run with -Djmh.args="ServiceClientBenchmark -prof gc" to see allocation per order lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(32)
+@Fork(1)
+public class ServiceClientBenchmark {
+    private static final byte[] USER_JSON =
+            "{\"id\":1,\"username\":\"u1\",\"email\":\"u1@x.com\",\"password\":\"ab\"}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer stub;
+    private ExecutorService stubExecutor;
+    private ExecutorService clientExecutor;
+    private ServiceClient sharedClient;
+    private int port;
+
+    @Setup
+    public void startStub() throws Exception {
+        // Without TCP_NODELAY the stub's split header/body writes stall reused connections on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        stub.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, USER_JSON.length);
+            exchange.getResponseBody().write(USER_JSON);
+            exchange.close();
+        });
+        stubExecutor = Executors.newFixedThreadPool(64);
+        stub.setExecutor(stubExecutor);
+        stub.start();
+        port = stub.getAddress().getPort();
+
+        clientExecutor = Executors.newCachedThreadPool();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(2))
+                .executor(clientExecutor)
+                .build();
+        sharedClient = new ServiceClient("127.0.0.1", port, httpClient, Duration.ofSeconds(10));
+    }
+
+    @TearDown
+    public void stopStub() {
+        stub.stop(0);
+        stubExecutor.shutdownNow();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public ServiceClient.ServiceResponse clientPerRequest() throws Exception {
+        return new ServiceClient("127.0.0.1", port).request("/user/1", "GET", "");
+    }
+
+    @Benchmark
+    public ServiceClient.ServiceResponse sharedClient() throws Exception {
+        return sharedClient.request("/user/1", "GET", "");
+    }
+}
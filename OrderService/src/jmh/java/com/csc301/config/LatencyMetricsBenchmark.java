@@ -0,0 +1,52 @@
+package com.csc301.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a timed request pays for LatencyMetrics: the timer lookup plus one start/stop pair, alone
+ * and with 4 threads sharing the timer. gc.alloc.rate.norm should read 0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LatencyMetricsBenchmark {
+    private LatencyMetrics metrics;
+
+    @Setup
+    public void createMetrics() {
+        metrics = new LatencyMetrics(60_000);
+        metrics.request("place order");
+    }
+
+    @Benchmark
+    public long startStop() {
+        LatencyMetrics.Timer timer = metrics.request("place order");
+        long start = timer.start();
+        timer.stop(start, 200);
+        return start;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long startStopContended() {
+        LatencyMetrics.Timer timer = metrics.request("place order");
+        long start = timer.start();
+        timer.stop(start, 200);
+        return start;
+    }
+}
@@ -0,0 +1,62 @@
+package com.csc301.controller;
+
+import com.csc301.model.UserPurchase;
+import com.csc301.repository.PurchaseCache;
+import com.csc301.util.JsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The local half of GET /user/purchased: rendering a user's user_purchase rows, and answering from
+ * PurchaseCache instead. The user check through ISCS and the repository query are left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PurchaseAggregationBenchmark {
+    @Param({"1", "10", "100"})
+    public int products;
+
+    private List<UserPurchase> purchases;
+    private PurchaseCache cache;
+
+    @Setup
+    public void buildPurchases() {
+        purchases = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            purchases.add(new UserPurchase(1001, 2000 + i, 1 + i % 5));
+        }
+        cache = new PurchaseCache(10_000, 60_000);
+        for (int userId = 0; userId < 1024; userId++) {
+            cache.put(userId, JsonCodec.toJson(OrderController.purchasesBody(purchases)), cache.generation());
+        }
+    }
+
+    @Benchmark
+    public String renderPurchases() {
+        return JsonCodec.toJson(OrderController.purchasesBody(purchases));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cachedPurchases() {
+        return cache.get(1001);
+    }
+}
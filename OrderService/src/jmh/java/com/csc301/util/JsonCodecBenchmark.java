@@ -0,0 +1,154 @@
+package com.csc301.util;
+
+import com.csc301.controller.OrderCommand;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode-validate-respond for a "place order" and a 100-item "place orders" body, once through a
+ * Gson tree (the old controller path) and once through the streaming codec.
+ * Run with -Djmh.args="JsonCodecBenchmark -prof gc" and compare gc.alloc.rate.norm (bytes per request).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+    private String placeOrder;
+    private String placeOrders;
+
+    @Setup
+    public void buildBodies() {
+        placeOrder = "{\"command\": \"place order\", \"user_id\": 1001, \"product_id\": 2002, \"quantity\": 3}";
+        StringBuilder batch = new StringBuilder("{\"command\": \"place orders\", \"orders\": [");
+        for (int i = 0; i < 100; i++) {
+            batch.append(i == 0 ? "" : ", ")
+                    .append("{\"user_id\": ").append(1000 + i % 10)
+                    .append(", \"product_id\": ").append(2000 + i % 7)
+                    .append(", \"quantity\": ").append(1 + i % 5).append('}');
+        }
+        placeOrders = batch.append("]}").toString();
+    }
+
+    @Benchmark
+    public byte[] treePlaceOrder() {
+        JsonObject json = JsonParser.parseString(placeOrder).getAsJsonObject();
+        if (!"place order".equalsIgnoreCase(json.get("command").getAsString())
+                || !json.has("user_id") || !json.has("product_id") || !json.has("quantity")) {
+            throw new IllegalStateException();
+        }
+        JsonObject response = new JsonObject();
+        response.addProperty("product_id", parseIntStrict(json, "product_id"));
+        response.addProperty("user_id", parseIntStrict(json, "user_id"));
+        response.addProperty("quantity", parseIntStrict(json, "quantity"));
+        response.addProperty("status", "Success");
+        return response.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public CountingStream streamPlaceOrder() throws IOException {
+        OrderCommand json = OrderCommand.decode(placeOrder);
+        if (!"place order".equalsIgnoreCase(json.command().asString())
+                || json.userId() == null || json.productId() == null || json.quantity() == null) {
+            throw new IllegalStateException();
+        }
+        int productId = json.productId().asIntStrict();
+        int userId = json.userId().asIntStrict();
+        int quantity = json.quantity().asIntStrict();
+        CountingStream out = new CountingStream();
+        JsonCodec.write(writer -> writer.beginObject()
+                .name("product_id").value(productId)
+                .name("user_id").value(userId)
+                .name("quantity").value(quantity)
+                .name("status").value("Success")
+                .endObject(), out);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] treePlaceOrders() {
+        JsonObject json = JsonParser.parseString(placeOrders).getAsJsonObject();
+        JsonArray results = new JsonArray();
+        for (JsonElement element : json.getAsJsonArray("orders")) {
+            JsonObject order = element.getAsJsonObject();
+            JsonObject result = new JsonObject();
+            result.addProperty("product_id", parseIntStrict(order, "product_id"));
+            result.addProperty("user_id", parseIntStrict(order, "user_id"));
+            result.addProperty("quantity", parseIntStrict(order, "quantity"));
+            result.addProperty("status", "Success");
+            results.add(result);
+        }
+        JsonObject response = new JsonObject();
+        response.addProperty("status", "Success");
+        response.add("results", results);
+        return response.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public CountingStream streamPlaceOrders() throws IOException {
+        OrderCommand json = OrderCommand.decode(placeOrders);
+        int[] parsed = new int[json.orders().size() * 3];
+        int i = 0;
+        for (OrderCommand order : json.orders()) {
+            parsed[i++] = order.productId().asIntStrict();
+            parsed[i++] = order.userId().asIntStrict();
+            parsed[i++] = order.quantity().asIntStrict();
+        }
+        CountingStream out = new CountingStream();
+        JsonCodec.write(writer -> {
+            writer.beginObject().name("status").value("Success").name("results").beginArray();
+            for (int j = 0; j < parsed.length; j += 3) {
+                writer.beginObject()
+                        .name("product_id").value(parsed[j])
+                        .name("user_id").value(parsed[j + 1])
+                        .name("quantity").value(parsed[j + 2])
+                        .name("status").value("Success")
+                        .endObject();
+            }
+            writer.endArray().endObject();
+        }, out);
+        return out;
+    }
+
+    private static int parseIntStrict(JsonObject json, String fieldName) {
+        double value = json.get(fieldName).getAsDouble();
+        if (value % 1 != 0) {
+            throw new IllegalArgumentException("Non-integer value for field: " + fieldName);
+        }
+        return (int) value;
+    }
+
+    // Stands in for the servlet stream, which the container owns and reuses across requests
+    public static class CountingStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
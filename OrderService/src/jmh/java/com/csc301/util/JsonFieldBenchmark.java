@@ -0,0 +1,51 @@
+package com.csc301.util;
+
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The controllers' parseIntStrict, now JsonField.asIntStrict, against the lenient asInt, for the
+ * shapes clients actually send an id or quantity in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonFieldBenchmark {
+    @Param({"1001", "1001.0", "\"1001\"", "[1001]"})
+    public String value;
+
+    private JsonField field;
+
+    @Setup
+    public void readField() throws IOException {
+        JsonReader in = JsonCodec.beginObject("{\"id\": " + value + "}");
+        in.nextName();
+        field = JsonField.read(in);
+    }
+
+    @Benchmark
+    public int asIntStrict() {
+        return field.asIntStrict();
+    }
+
+    @Benchmark
+    public int asInt() {
+        return field.asInt();
+    }
+}
@@ -18,6 +18,9 @@ public class OrderServiceApp {
             String iscsPortEnv = System.getenv("ISCS_PORT");
             String serverPortEnv = System.getenv("SERVER_PORT");
             String serverAddressEnv = System.getenv("SERVER_ADDRESS");
+            String routingEnv = System.getenv("ROUTING_MODE");
+            String userReplicasEnv = System.getenv("USER_SERVICE_REPLICAS");
+            String productReplicasEnv = System.getenv("PRODUCT_SERVICE_REPLICAS");
 
             ConfigLoader.ISCSConfig iscsConfig;
             if (iscsIpEnv != null && iscsPortEnv != null) {
@@ -31,6 +34,18 @@ public class OrderServiceApp {
 
             SpringApplication app = new SpringApplication(OrderServiceApp.class);
             java.util.Map<String, Object> properties = new java.util.HashMap<>();
+            properties.put("iscs.ip", iscsConfig.ip);
+            properties.put("iscs.port", iscsConfig.port);
+            // An env-only start (the fast-start image, AOT and CDS training) has no config.json; route via ISCS
+            boolean hasConfig = java.nio.file.Files.exists(java.nio.file.Path.of(configPath));
+            String iscsTarget = iscsConfig.ip + ":" + iscsConfig.port;
+            String routing = routingEnv != null ? routingEnv
+                    : hasConfig ? ConfigLoader.getRoutingMode(configPath) : "iscs";
+            properties.put("routing.mode", routing);
+            properties.put("routing.user.replicas", userReplicasEnv != null ? userReplicasEnv
+                    : hasConfig ? ConfigLoader.getReplicas(configPath, "UserService") : iscsTarget);
+            properties.put("routing.product.replicas", productReplicasEnv != null ? productReplicasEnv
+                    : hasConfig ? ConfigLoader.getReplicas(configPath, "ProductService") : iscsTarget);
 
             if (serverPortEnv != null) {
                 properties.put("server.port", Integer.parseInt(serverPortEnv));
@@ -50,7 +65,14 @@ public class OrderServiceApp {
             OrderController orderController = context.getBean(OrderController.class);
             orderController.setISCSConfig(iscsConfig);
 
-            System.out.println("Order Service started. ISCS at " + iscsConfig.ip + ":" + iscsConfig.port);
+            if ("direct".equalsIgnoreCase(routing)) {
+                System.out.println("Order Service started. Routing directly to User/Product replicas.");
+            } else {
+                System.out.println("Order Service started. ISCS at " + iscsConfig.ip + ":" + iscsConfig.port);
+            }
+        } catch (SpringApplication.AbandonedRunException e) {
+            // Spring AOT processing stops the run on purpose once it has the bean definitions
+            throw e;
         } catch (Exception e) {
             System.err.println("Failed to start Order Service: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,146 @@
+package com.csc301.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker for one downstream service, over a sliding window of its last windowSize calls.
+ *
+ * A call fails if it throws or answers 5xx, and is slow if it takes slowCallMs or more. Once the
+ * window holds minimumCalls, reaching either failureRate or slowCallRate opens the breaker: calls
+ * are refused without being sent for openMs. After that, halfOpenCalls trial calls go through; if
+ * all of them succeed in time the breaker closes with an empty window, otherwise it opens again.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private static final byte OK = 0;
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int minimumCalls;
+    private final double failureRate;
+    private final double slowCallRate;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Written under the lock, read without it so closed-state calls only take it to record
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    // Guarded by this
+    private final byte[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+    private int trialsStarted;
+    private int trialsPassed;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRate, double slowCallRate,
+                          long slowCallMs, long openMs, int halfOpenCalls) {
+        this.window = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRate = failureRate;
+        this.slowCallRate = slowCallRate;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    /** True if a call may be sent now; every true must be followed by one {@link #record}. */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                trialsStarted = 0;
+                trialsPassed = 0;
+            }
+            if (state == State.CLOSED || (state == State.HALF_OPEN && trialsStarted++ < halfOpenCalls)) {
+                return true;
+            }
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /** Whether a call would be refused right now, without taking a trial slot. */
+    public boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - openedAt < openNanos;
+    }
+
+    public synchronized void record(long elapsedNanos, boolean failed) {
+        byte outcome = failed ? FAILED : elapsedNanos >= slowCallNanos ? SLOW : OK;
+        switch (state) {
+            case HALF_OPEN -> {
+                if (outcome != OK) {
+                    open();
+                } else if (++trialsPassed >= halfOpenCalls) {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                if (calls == window.length) {
+                    forget(window[next]);
+                } else {
+                    calls++;
+                }
+                window[next] = outcome;
+                next = (next + 1) % window.length;
+                if (outcome == FAILED) {
+                    failures++;
+                } else if (outcome == SLOW) {
+                    slowCalls++;
+                }
+                if (calls >= minimumCalls
+                        && (failures >= failureRate * calls || slowCalls >= slowCallRate * calls)) {
+                    open();
+                }
+            }
+            // Calls sent before the breaker opened say nothing about the trial that comes next
+            case OPEN -> { }
+        }
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /** Calls refused while open or half-open. */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /** Times the breaker has opened, from closed or from a failed trial. */
+    public long timesOpened() {
+        return opened.get();
+    }
+
+    private void forget(byte outcome) {
+        if (outcome == FAILED) {
+            failures--;
+        } else if (outcome == SLOW) {
+            slowCalls--;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        opened.incrementAndGet();
+    }
+
+    private void close() {
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+        state = State.CLOSED;
+    }
+}
@@ -0,0 +1,24 @@
+package com.csc301.client;
+
+/**
+ * A downstream call refused without being sent, because the target's circuit breaker is open or
+ * its concurrency limit is reached. Callers answer 503 instead of waiting on a failing service.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DownstreamUnavailableException(String message) {
+        // Thrown on the fast path while a service is down, so skip the stack trace
+        super(message, null, false, false);
+    }
+
+    /** Whether error, or anything that caused it, is a refused call. */
+    public static boolean isCause(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof DownstreamUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.csc301.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Short-lived memory of ids a downstream service answered 404 for, holding that 404 response so it
+ * can be replayed without another hop through ISCS.
+ *
+ * Creates proxied through this replica forget their id straight away, and a proxied bulk create
+ * clears every entry; creates that reach the service any other way are only seen once the entry expires.
+ */
+public class MissingIdCache {
+    private final Cache<Integer, ServiceClient.ServiceResponse> missing;
+
+    public MissingIdCache(long ttlMs, long maxEntries) {
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(ttlMs > 0 ? maxEntries : 0)
+                .expireAfterWrite(Duration.ofMillis(Math.max(ttlMs, 1)))
+                .build();
+    }
+
+    /** The cached 404 for id, or null if id is not known to be missing. */
+    public ServiceClient.ServiceResponse get(int id) {
+        return missing.getIfPresent(id);
+    }
+
+    public void record(int id, ServiceClient.ServiceResponse response) {
+        if (response.statusCode == 404) {
+            missing.put(id, response);
+        }
+    }
+
+    public void forget(int id) {
+        missing.invalidate(id);
+    }
+
+    public void clear() {
+        missing.invalidateAll();
+    }
+}
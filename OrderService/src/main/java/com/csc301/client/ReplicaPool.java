@@ -0,0 +1,198 @@
+package com.csc301.client;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The base URLs a {@link ServiceClient} sends to. In ISCS mode that is the one fixed ISCS address.
+ * In direct mode it is every replica of the service. Each host:port target is re-resolved through
+ * DNS on every health check, so a compose service name yields one replica per container.
+ *
+ * Replicas are probed with probePath every intervalMs. A replica is healthy while the probe gets
+ * any answer below 500. A call that ends without an answer (refused, reset or timed out) marks it
+ * unhealthy until its next probe passes. Each call goes to the less loaded of two random healthy replicas, by calls in flight.
+ * If none is healthy, every known replica is a candidate.
+ */
+public class ReplicaPool implements AutoCloseable {
+    public static final class Replica {
+        private final String baseUrl;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        private Replica(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String baseUrl() { return baseUrl; }
+        public int inFlight() { return inFlight.get(); }
+        public boolean isHealthy() { return healthy; }
+    }
+
+    private final String service;
+    private final List<String> targets;
+    private final HttpClient httpClient;
+    private final String probePath;
+    private final Duration probeTimeout;
+    private final ScheduledExecutorService checker;
+
+    // Replaced whole on every change; written by the checker thread and under the lock
+    private volatile Replica[] replicas = new Replica[0];
+    private volatile Replica[] candidates = new Replica[0];
+
+    private ReplicaPool(String service, List<String> targets, HttpClient httpClient, String probePath,
+                        Duration probeTimeout, long intervalMs) {
+        this.service = service;
+        this.targets = List.copyOf(targets);
+        this.httpClient = httpClient;
+        this.probePath = probePath;
+        this.probeTimeout = probeTimeout;
+        if (intervalMs > 0) {
+            checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-" + service);
+                thread.setDaemon(true);
+                return thread;
+            });
+            resolve();
+            checker.scheduleWithFixedDelay(this::check, 0, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            checker = null;
+        }
+    }
+
+    /** One address used as is, never probed: ISCS, or a client outside the Spring context. */
+    public static ReplicaPool fixed(String ip, int port) {
+        ReplicaPool pool = new ReplicaPool("fixed", List.of(), null, null, null, 0);
+        Replica replica = new Replica("http://" + ip + ":" + port);
+        pool.replicas = new Replica[] {replica};
+        pool.candidates = pool.replicas;
+        return pool;
+    }
+
+    /** Replicas of service behind the host:port targets, probed with GET probePath every intervalMs. */
+    public static ReplicaPool direct(String service, List<String> targets, HttpClient httpClient, String probePath,
+                                     Duration probeTimeout, long intervalMs) {
+        return new ReplicaPool(service, targets, httpClient, probePath, probeTimeout, Math.max(1, intervalMs));
+    }
+
+    /** Picks the replica for one call and counts it in flight, or returns null if there is none. */
+    public Replica acquire() {
+        Replica[] choices = candidates;
+        Replica chosen;
+        if (choices.length == 0) {
+            return null;
+        } else if (choices.length == 1) {
+            chosen = choices[0];
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(choices.length);
+            int second = random.nextInt(choices.length - 1);
+            if (second >= first) {
+                second++;
+            }
+            chosen = choices[first].inFlight.get() <= choices[second].inFlight.get() ? choices[first] : choices[second];
+        }
+        chosen.inFlight.incrementAndGet();
+        return chosen;
+    }
+
+    /** Ends a call from {@link #acquire}; unreachable means it failed without an answer. */
+    public void release(Replica replica, boolean unreachable) {
+        replica.inFlight.decrementAndGet();
+        if (unreachable && checker != null && replica.healthy) {
+            replica.healthy = false;
+            updateCandidates();
+        }
+    }
+
+    public List<Replica> replicas() {
+        return List.of(replicas);
+    }
+
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+    }
+
+    private void check() {
+        try {
+            resolve();
+            Replica[] current = replicas;
+            List<CompletableFuture<Void>> probes = new ArrayList<>(current.length);
+            for (Replica replica : current) {
+                HttpRequest probe = HttpRequest.newBuilder(URI.create(replica.baseUrl + probePath))
+                        .timeout(probeTimeout)
+                        .GET()
+                        .build();
+                probes.add(httpClient.sendAsync(probe, HttpResponse.BodyHandlers.discarding())
+                        .handle((response, error) -> {
+                            replica.healthy = error == null && response.statusCode() < 500;
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[0])).join();
+            updateCandidates();
+        } catch (RuntimeException e) {
+            System.err.println("Health check of " + service + " replicas failed: " + e.getMessage());
+        }
+    }
+
+    // Keeps the Replica (and its in-flight count) of every address that is still listed
+    private void resolve() {
+        Map<String, Replica> known = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            known.put(replica.baseUrl, replica);
+        }
+        Map<String, Replica> resolved = new LinkedHashMap<>();
+        for (String target : targets) {
+            int colon = target.lastIndexOf(':');
+            String host = target.substring(0, colon);
+            String port = target.substring(colon + 1);
+            try {
+                for (InetAddress address : InetAddress.getAllByName(host)) {
+                    String ip = address instanceof Inet6Address ? "[" + address.getHostAddress() + "]" : address.getHostAddress();
+                    String baseUrl = "http://" + ip + ":" + port;
+                    resolved.put(baseUrl, known.getOrDefault(baseUrl, new Replica(baseUrl)));
+                }
+            } catch (Exception e) {
+                System.err.println("Could not resolve " + service + " replica " + target + ": " + e.getMessage());
+            }
+        }
+        // A failed lookup leaves the last known replicas in place rather than none
+        if (resolved.isEmpty() && !known.isEmpty()) {
+            return;
+        }
+        if (!resolved.keySet().equals(known.keySet())) {
+            System.out.println(service + " replicas: " + resolved.keySet());
+            replicas = resolved.values().toArray(new Replica[0]);
+            updateCandidates();
+        }
+    }
+
+    private synchronized void updateCandidates() {
+        Replica[] all = replicas;
+        List<Replica> healthy = new ArrayList<>(all.length);
+        for (Replica replica : all) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        candidates = healthy.isEmpty() ? all : healthy.toArray(new Replica[0]);
+    }
+}
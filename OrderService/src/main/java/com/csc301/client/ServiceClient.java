@@ -1,34 +1,103 @@
 package com.csc301.client;
 
+import com.csc301.config.LatencyMetrics;
+import com.csc301.config.RequestTrace;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Thin wrapper around a shared {@link HttpClient} for calls to a downstream service, through ISCS or
+ * straight to the service's replicas (see {@link ReplicaPool}).
+ * Instances are long-lived (see ServiceClientConfig) so connections stay pooled between requests.
+ *
+ * request/requestAsync go through the service's {@link CircuitBreaker} and a cap on calls in flight.
+ * A call refused by either fails at once with {@link DownstreamUnavailableException}, so a stalled
+ * service cannot tie up OrderService's threads; each call that is sent ends at requestTimeout.
+ * Concurrent requestAsync GETs of the same path can share one call (see {@link SingleFlight}).
+ */
 public class ServiceClient {
-    private final String baseUrl;
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final ReplicaPool replicas;
     private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final LatencyMetrics.Timer getTimer;
+    private final LatencyMetrics.Timer postTimer;
+    private final LatencyMetrics.Timer deleteTimer;
+    private final String service;
+    private final CircuitBreaker breaker;
+    // Null when calls in flight are not capped
+    private final Semaphore inFlight;
+    private final AtomicLong limitRejections = new AtomicLong();
+    // GETs in flight by path; null when identical GETs are not coalesced
+    private final SingleFlight<String, ServiceResponse> gets;
 
     public static class ServiceResponse {
         public final int statusCode;
         public final String body;
+        /** The response's Server-Timing header, or null. */
+        public final String serverTiming;
+        /** Round trip as seen by this client, or -1 if not measured. */
+        public final long elapsedNanos;
 
         public ServiceResponse(int statusCode, String body) {
+            this(statusCode, body, null, -1);
+        }
+
+        public ServiceResponse(int statusCode, String body, String serverTiming, long elapsedNanos) {
             this.statusCode = statusCode;
             this.body = body;
+            this.serverTiming = serverTiming;
+            this.elapsedNanos = elapsedNanos;
         }
     }
 
+    /** Standalone client with its own HttpClient; prefer the shared beans for request handling. */
     public ServiceClient(String ip, int port) {
-        this.baseUrl = "http://" + ip + ":" + port;
-        this.httpClient = HttpClient.newHttpClient();
+        this(ip, port, HttpClient.newHttpClient(), DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    public ServiceClient(String ip, int port, HttpClient httpClient, Duration requestTimeout) {
+        this(ip, port, httpClient, requestTimeout, new LatencyMetrics(60_000), "downstream");
+    }
+
+    /** Client whose request/requestAsync calls are timed under downstream_duration_seconds{service, method}. */
+    public ServiceClient(String ip, int port, HttpClient httpClient, Duration requestTimeout,
+                         LatencyMetrics metrics, String service) {
+        this(ReplicaPool.fixed(ip, port), httpClient, requestTimeout, metrics, service, null, 0, false);
+    }
+
+    /**
+     * Timed client that sends nothing while breaker is open (null for no breaker), keeps at most
+     * maxInFlight calls outstanding (0 for no limit) and, with coalesceGets, shares concurrent GETs.
+     */
+    public ServiceClient(ReplicaPool replicas, HttpClient httpClient, Duration requestTimeout,
+                         LatencyMetrics metrics, String service, CircuitBreaker breaker, int maxInFlight,
+                         boolean coalesceGets) {
+        this.service = service;
+        this.gets = coalesceGets ? new SingleFlight<>() : null;
+        this.breaker = breaker;
+        this.inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+        this.replicas = replicas;
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.getTimer = metrics.timer(LatencyMetrics.Family.DOWNSTREAM, service, "GET");
+        this.postTimer = metrics.timer(LatencyMetrics.Family.DOWNSTREAM, service, "POST");
+        this.deleteTimer = metrics.timer(LatencyMetrics.Family.DOWNSTREAM, service, "DELETE");
     }
 
     public int getStatusCode(String path, String method, String body) throws Exception {
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(new URI(baseUrl + path));
+        HttpRequest.Builder requestBuilder = newRequest(anyReplica(), path);
 
         if ("POST".equalsIgnoreCase(method)) {
             requestBuilder.POST(HttpRequest.BodyPublishers.ofString(body))
@@ -43,8 +112,7 @@ public class ServiceClient {
     }
 
     public JsonObject makeRequest(String path, String method, String body) throws Exception {
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(new URI(baseUrl + path));
+        HttpRequest.Builder requestBuilder = newRequest(anyReplica(), path);
 
         if ("POST".equalsIgnoreCase(method)) {
             requestBuilder.POST(HttpRequest.BodyPublishers.ofString(body))
@@ -55,7 +123,7 @@ public class ServiceClient {
 
         HttpRequest request = requestBuilder.build();
         HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        
+
         if (response.statusCode() == 200) {
             return JsonParser.parseString(response.body()).getAsJsonObject();
         }
@@ -63,8 +131,176 @@ public class ServiceClient {
     }
 
     public ServiceResponse request(String path, String method, String body) throws Exception {
-        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                .uri(new URI(baseUrl + path));
+        admit();
+        ReplicaPool.Replica replica = replicas.acquire();
+        if (replica == null) {
+            finish(0, LatencyMetrics.FAILED);
+            throw noReplicas();
+        }
+        LatencyMetrics.Timer timer = timer(method);
+        long start = timer.start();
+        try {
+            HttpResponse<String> response = httpClient.send(requestBuilder(replica, path, method, body).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            replicas.release(replica, false);
+            finish(timer.stop(start, response.statusCode()), response.statusCode());
+            return new ServiceResponse(response.statusCode(), response.body());
+        } catch (Exception e) {
+            replicas.release(replica, true);
+            finish(timer.stop(start, LatencyMetrics.FAILED), LatencyMetrics.FAILED);
+            throw e;
+        }
+    }
+
+    /** Non-blocking variant of {@link #request}; the future fails if the call cannot be made. */
+    public CompletableFuture<ServiceResponse> requestAsync(String path, String method, String body) {
+        return requestAsync(path, method, body, null);
+    }
+
+    /**
+     * As {@link #requestAsync(String, String, String)}, sending requestId as X-Request-Id unless it is null.
+     * A GET that joins one already in flight gets that call's response, sent with the first caller's id.
+     */
+    public CompletableFuture<ServiceResponse> requestAsync(String path, String method, String body, String requestId) {
+        if (gets != null && "GET".equalsIgnoreCase(method)) {
+            return gets.run(path, () -> send(path, method, body, requestId, true));
+        }
+        return send(path, method, body, requestId, true);
+    }
+
+    /**
+     * As {@link #requestAsync(String, String, String)}, but sent even while the breaker is open or the
+     * limit is reached, and left out of the breaker's window. For compensating calls such as a stock
+     * release, where refusing would lose the update outright.
+     */
+    public CompletableFuture<ServiceResponse> requestUnguardedAsync(String path, String method, String body) {
+        return send(path, method, body, null, false);
+    }
+
+    private CompletableFuture<ServiceResponse> send(String path, String method, String body, String requestId,
+                                                    boolean guarded) {
+        if (guarded) {
+            try {
+                admit();
+            } catch (DownstreamUnavailableException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        ReplicaPool.Replica replica = replicas.acquire();
+        HttpRequest request;
+        try {
+            if (replica == null) {
+                throw noReplicas();
+            }
+            HttpRequest.Builder builder = requestBuilder(replica, path, method, body);
+            if (requestId != null) {
+                builder.header(RequestTrace.ID_HEADER, requestId);
+            }
+            request = builder.build();
+        } catch (URISyntaxException | RuntimeException e) {
+            if (replica != null) {
+                replicas.release(replica, false);
+            }
+            if (guarded) {
+                finish(0, LatencyMetrics.FAILED);
+            }
+            return CompletableFuture.failedFuture(e);
+        }
+        LatencyMetrics.Timer timer = timer(method);
+        long start = timer.start();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    replicas.release(replica, error != null);
+                    if (error != null) {
+                        long elapsed = timer.stop(start, LatencyMetrics.FAILED);
+                        if (guarded) {
+                            finish(elapsed, LatencyMetrics.FAILED);
+                        }
+                        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                    }
+                    long elapsed = timer.stop(start, response.statusCode());
+                    if (guarded) {
+                        finish(elapsed, response.statusCode());
+                    }
+                    return new ServiceResponse(response.statusCode(), response.body(),
+                            response.headers().firstValue(RequestTrace.TIMING_HEADER).orElse(null), elapsed);
+                });
+    }
+
+    /** GETs of path after this make a new call instead of joining one that started before a write to it. */
+    public void forgetInFlight(String path) {
+        if (gets != null) {
+            gets.forget(path);
+        }
+    }
+
+    public void clearInFlight() {
+        if (gets != null) {
+            gets.clear();
+        }
+    }
+
+    /** Null if GETs are not coalesced. */
+    public SingleFlight<String, ServiceResponse> coalescedGets() {
+        return gets;
+    }
+
+    /** Whether calls are currently refused because the breaker is open. */
+    public boolean isUnavailable() {
+        return breaker != null && breaker.isOpen();
+    }
+
+    public String service() {
+        return service;
+    }
+
+    public ReplicaPool replicas() {
+        return replicas;
+    }
+
+    /** Null if this client has no breaker. */
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    /** Calls refused because maxInFlight calls were already outstanding. */
+    public long limitRejections() {
+        return limitRejections.get();
+    }
+
+    // Takes an in-flight slot, then a breaker permit; finish gives back both
+    private void admit() {
+        if (inFlight != null && !inFlight.tryAcquire()) {
+            limitRejections.incrementAndGet();
+            throw new DownstreamUnavailableException(service + " has too many calls in flight");
+        }
+        if (breaker != null && !breaker.tryAcquire()) {
+            if (inFlight != null) {
+                inFlight.release();
+            }
+            throw new DownstreamUnavailableException(service + " circuit breaker is open");
+        }
+    }
+
+    private void finish(long elapsedNanos, int status) {
+        if (breaker != null) {
+            breaker.record(elapsedNanos, status == LatencyMetrics.FAILED || status >= 500);
+        }
+        if (inFlight != null) {
+            inFlight.release();
+        }
+    }
+
+    private LatencyMetrics.Timer timer(String method) {
+        if ("POST".equalsIgnoreCase(method)) {
+            return postTimer;
+        }
+        return "DELETE".equalsIgnoreCase(method) ? deleteTimer : getTimer;
+    }
+
+    private HttpRequest.Builder requestBuilder(ReplicaPool.Replica replica, String path, String method, String body)
+            throws URISyntaxException {
+        HttpRequest.Builder requestBuilder = newRequest(replica.baseUrl(), path);
 
         switch (method.toUpperCase()) {
             case "POST":
@@ -78,9 +314,26 @@ public class ServiceClient {
                 requestBuilder.GET();
                 break;
         }
+        return requestBuilder;
+    }
 
-        HttpRequest request = requestBuilder.build();
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        return new ServiceResponse(response.statusCode(), response.body());
+    // The legacy helpers pick a replica without counting the call against it
+    private String anyReplica() {
+        ReplicaPool.Replica replica = replicas.acquire();
+        if (replica == null) {
+            throw noReplicas();
+        }
+        replicas.release(replica, false);
+        return replica.baseUrl();
+    }
+
+    private DownstreamUnavailableException noReplicas() {
+        return new DownstreamUnavailableException(service + " has no replicas");
+    }
+
+    private HttpRequest.Builder newRequest(String baseUrl, String path) throws URISyntaxException {
+        return HttpRequest.newBuilder()
+                .uri(new URI(baseUrl + path))
+                .timeout(requestTimeout);
     }
 }
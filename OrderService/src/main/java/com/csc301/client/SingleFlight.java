@@ -0,0 +1,67 @@
+package com.csc301.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Table of downstream calls in flight by key, so concurrent callers asking for the same thing share
+ * one call and its result. An entry is removed as soon as its call completes, so nothing is cached:
+ * a caller that arrives after that starts a new call.
+ *
+ * Each caller gets its own copy of the shared future, so one caller completing or cancelling its
+ * copy (e.g. on a deadline) leaves the others waiting on the call.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /** Joins the call in flight for key, or starts one with call if there is none. */
+    public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            return existing.copy();
+        }
+        calls.increment();
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        // Removed before completing, so a caller woken by the result cannot join this finished call
+        started.whenComplete((value, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight.copy();
+    }
+
+    /** Makes callers after this start a new call for key, e.g. once a write to it has completed. */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void clear() {
+        inFlight.clear();
+    }
+
+    /** Calls actually made. */
+    public long calls() {
+        return calls.sum();
+    }
+
+    /** Callers that joined a call already in flight instead of making their own. */
+    public long shared() {
+        return shared.sum();
+    }
+}
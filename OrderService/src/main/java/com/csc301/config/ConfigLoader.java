@@ -1,11 +1,14 @@
 package com.csc301.config;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class ConfigLoader {
@@ -42,6 +45,34 @@ public class ConfigLoader {
         return iscsJson.get("port").getAsInt();
     }
 
+    /** "iscs" (every downstream call goes through ISCS) or "direct" (straight to the replicas); "Routing" in config.json, default iscs. */
+    public static String getRoutingMode(String configPath) throws IOException {
+        FileReader reader = new FileReader(configPath);
+        JsonObject jsonConfig = JsonParser.parseReader(reader).getAsJsonObject();
+        reader.close();
+        JsonElement routing = jsonConfig.get("Routing");
+        return routing != null ? routing.getAsString() : "iscs";
+    }
+
+    /**
+     * Comma-separated host:port targets for serviceName's replicas: its "replicas" array if it has one,
+     * otherwise its ip and port. Direct routing resolves each host, so one name can stand for many replicas.
+     */
+    public static String getReplicas(String configPath, String serviceName) throws IOException {
+        FileReader reader = new FileReader(configPath);
+        JsonObject jsonConfig = JsonParser.parseReader(reader).getAsJsonObject();
+        reader.close();
+        JsonObject serviceConfig = jsonConfig.getAsJsonObject(serviceName);
+        if (serviceConfig.has("replicas")) {
+            List<String> targets = new ArrayList<>();
+            for (JsonElement target : serviceConfig.getAsJsonArray("replicas")) {
+                targets.add(target.getAsString());
+            }
+            return String.join(",", targets);
+        }
+        return serviceConfig.get("ip").getAsString() + ":" + serviceConfig.get("port").getAsInt();
+    }
+
     @Bean
     public ISCSConfig getISCSConfig() {
         return iscsConfig;
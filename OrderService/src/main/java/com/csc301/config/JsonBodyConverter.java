@@ -0,0 +1,62 @@
+package com.csc301.config;
+
+import com.csc301.util.JsonBody;
+import com.csc301.util.JsonCodec;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes {@link JsonBody} responses token by token onto the servlet output stream.
+ *
+ * Small bodies (one encode buffer) are sent with a Content-Length; larger ones go out chunked as
+ * they are written.
+ */
+@Component
+public class JsonBodyConverter implements HttpMessageConverter<JsonBody> {
+    private static final List<MediaType> MEDIA_TYPES = List.of(MediaType.APPLICATION_JSON, MediaType.ALL);
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return JsonBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return MEDIA_TYPES;
+    }
+
+    @Override
+    public JsonBody read(Class<? extends JsonBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("JsonBody is write-only", inputMessage);
+    }
+
+    @Override
+    public void write(JsonBody body, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        if (outputMessage.getHeaders().getContentType() == null) {
+            MediaType type = contentType == null || !contentType.isConcrete() ? MediaType.APPLICATION_JSON : contentType;
+            if (type.getCharset() == null && !type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                type = new MediaType(type, StandardCharsets.UTF_8);
+            }
+            outputMessage.getHeaders().setContentType(type);
+        }
+        JsonCodec.write(body, contentLength -> {
+            if (contentLength >= 0) {
+                outputMessage.getHeaders().setContentLength(contentLength);
+            }
+            return outputMessage.getBody();
+        });
+    }
+}
@@ -0,0 +1,198 @@
+package com.csc301.config;
+
+import com.csc301.client.CircuitBreaker;
+import com.csc301.client.MissingIdCache;
+import com.csc301.client.ReplicaPool;
+import com.csc301.client.ServiceClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the long-lived HTTP clients OrderService uses to reach User/Product services, through ISCS
+ * or, with routing.mode=direct, straight to their replicas (see ConfigLoader for where those come from).
+ * One HttpClient is shared by both downstream clients so keep-alive connections are pooled.
+ */
+@Configuration
+public class ServiceClientConfig {
+
+    @Value("${iscs.ip:127.0.0.1}")
+    private String iscsIp;
+
+    @Value("${iscs.port:14002}")
+    private int iscsPort;
+
+    // iscs, or direct to skip ISCS and balance over the replicas below
+    @Value("${routing.mode:iscs}")
+    private String routingMode;
+
+    // Comma-separated host:port targets; a host that resolves to several addresses is one replica per address
+    @Value("${routing.user.replicas:127.0.0.1:14001}")
+    private String userReplicas;
+
+    @Value("${routing.product.replicas:127.0.0.1:15000}")
+    private String productReplicas;
+
+    @Value("${routing.health.interval-ms:1000}")
+    private long healthIntervalMs;
+
+    @Value("${routing.health.timeout-ms:500}")
+    private long healthTimeoutMs;
+
+    @Value("${iscs.client.http-version:HTTP_2}")
+    private HttpClient.Version httpVersion;
+
+    @Value("${iscs.client.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${iscs.client.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    // 0 keeps the HttpClient's default cached executor
+    @Value("${iscs.client.executor-threads:0}")
+    private int executorThreads;
+
+    @Value("${iscs.client.keepalive-timeout-s:30}")
+    private int keepAliveTimeoutSeconds;
+
+    // 0 means the pool is unbounded
+    @Value("${iscs.client.max-pooled-connections:0}")
+    private int maxPooledConnections;
+
+    // Calls outstanding to one service at a time; 0 means no limit
+    @Value("${iscs.client.max-in-flight:0}")
+    private int maxInFlight;
+
+    // Concurrent GETs of the same path share one call
+    @Value("${iscs.client.coalesce-gets:true}")
+    private boolean coalesceGets;
+
+    @Value("${iscs.breaker.enabled:true}")
+    private boolean breakerEnabled;
+
+    @Value("${iscs.breaker.window-size:100}")
+    private int breakerWindowSize;
+
+    @Value("${iscs.breaker.minimum-calls:20}")
+    private int breakerMinimumCalls;
+
+    @Value("${iscs.breaker.failure-rate:0.5}")
+    private double breakerFailureRate;
+
+    @Value("${iscs.breaker.slow-call-rate:0.8}")
+    private double breakerSlowCallRate;
+
+    @Value("${iscs.breaker.slow-call-ms:2000}")
+    private long breakerSlowCallMs;
+
+    @Value("${iscs.breaker.open-ms:5000}")
+    private long breakerOpenMs;
+
+    @Value("${iscs.breaker.half-open-calls:5}")
+    private int breakerHalfOpenCalls;
+
+    // 0 disables the negative cache
+    @Value("${iscs.negative-cache.ttl-ms:1000}")
+    private long negativeCacheTtlMs;
+
+    @Value("${iscs.negative-cache.max-entries:100000}")
+    private long negativeCacheMaxEntries;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService serviceClientExecutor() {
+        // Response callbacks and thenAccept stages run here; in virtual mode each gets a virtual thread
+        if (virtualThreads) {
+            return Executors.newCachedThreadPool(new VirtualThreadTaskExecutor("iscs-client-").getVirtualThreadFactory());
+        }
+        if (executorThreads > 0) {
+            return Executors.newFixedThreadPool(executorThreads, daemonThreads("iscs-client-"));
+        }
+        return Executors.newCachedThreadPool(daemonThreads("iscs-client-"));
+    }
+
+    @Bean
+    public HttpClient iscsHttpClient(ExecutorService serviceClientExecutor) {
+        // The JDK connection pool reads these once, when the first client is built
+        System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveTimeoutSeconds));
+        System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(maxPooledConnections));
+
+        return HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(serviceClientExecutor)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaPool userReplicaPool(HttpClient iscsHttpClient) {
+        // The probes are reads that touch the database and change nothing
+        return replicaPool("user", userReplicas, "/user/0", iscsHttpClient);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaPool productReplicaPool(HttpClient iscsHttpClient) {
+        return replicaPool("product", productReplicas, "/product/0", iscsHttpClient);
+    }
+
+    @Bean
+    public ServiceClient userServiceClient(HttpClient iscsHttpClient, LatencyMetrics metrics) {
+        return new ServiceClient(userReplicaPool(iscsHttpClient), iscsHttpClient, Duration.ofMillis(requestTimeoutMs),
+                metrics, "user", breaker(), maxInFlight, coalesceGets);
+    }
+
+    @Bean
+    public ServiceClient productServiceClient(HttpClient iscsHttpClient, LatencyMetrics metrics) {
+        return new ServiceClient(productReplicaPool(iscsHttpClient), iscsHttpClient, Duration.ofMillis(requestTimeoutMs),
+                metrics, "product", breaker(), maxInFlight, coalesceGets);
+    }
+
+    @Bean
+    public MissingIdCache missingUsers() {
+        return new MissingIdCache(negativeCacheTtlMs, negativeCacheMaxEntries);
+    }
+
+    @Bean
+    public MissingIdCache missingProducts() {
+        return new MissingIdCache(negativeCacheTtlMs, negativeCacheMaxEntries);
+    }
+
+    private ReplicaPool replicaPool(String service, String targets, String probePath, HttpClient httpClient) {
+        if (!"direct".equalsIgnoreCase(routingMode)) {
+            return ReplicaPool.fixed(iscsIp, iscsPort);
+        }
+        List<String> list = Arrays.stream(targets.split(",")).map(String::trim).filter(t -> !t.isEmpty()).toList();
+        return ReplicaPool.direct(service, list, httpClient, probePath, Duration.ofMillis(healthTimeoutMs), healthIntervalMs);
+    }
+
+    // Each downstream service gets a breaker of its own, so one failing service leaves calls to the other alone
+    private CircuitBreaker breaker() {
+        if (!breakerEnabled) {
+            return null;
+        }
+        return new CircuitBreaker(breakerWindowSize, breakerMinimumCalls, breakerFailureRate, breakerSlowCallRate,
+                breakerSlowCallMs, breakerOpenMs, breakerHalfOpenCalls);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
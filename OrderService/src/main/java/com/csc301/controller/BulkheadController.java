@@ -0,0 +1,32 @@
+package com.csc301.controller;
+
+import com.csc301.config.RequestBulkhead;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+public class BulkheadController {
+    @Autowired
+    private RequestBulkhead bulkhead;
+
+    // Queue depth and rejections per request class for this replica
+    @GetMapping("/bulkhead")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(bulkhead.stats().toString());
+    }
+
+    /** Turns a full bulkhead queue into 503 for every controller. */
+    @RestControllerAdvice
+    public static class RejectionHandler {
+        @ExceptionHandler(RejectedExecutionException.class)
+        public ResponseEntity<?> rejected() {
+            return ResponseEntity.status(503).body("{\"error\": \"Service busy\"}");
+        }
+    }
+}
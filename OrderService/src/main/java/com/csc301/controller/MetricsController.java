@@ -0,0 +1,84 @@
+package com.csc301.controller;
+
+import com.csc301.client.CircuitBreaker;
+import com.csc301.client.ReplicaPool;
+import com.csc301.client.ServiceClient;
+import com.csc301.client.SingleFlight;
+import com.csc301.config.LatencyMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class MetricsController {
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+
+    @Autowired
+    private LatencyMetrics metrics;
+
+    @Autowired
+    private List<ServiceClient> serviceClients;
+
+    // Latency quantiles, error counts and in-flight gauges for this replica, in Prometheus text format
+    @GetMapping("/metrics")
+    public ResponseEntity<?> scrape() {
+        StringBuilder out = new StringBuilder(metrics.scrape());
+        appendDownstream(out);
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(out.toString());
+    }
+
+    // Breaker state (0 closed, 1 half-open, 2 open), GETs that joined a call in flight and calls refused
+    // without being sent, per downstream service; health and calls in flight per replica (or ISCS)
+    private void appendDownstream(StringBuilder out) {
+        out.append("# TYPE downstream_breaker_state gauge\n");
+        for (ServiceClient client : serviceClients) {
+            CircuitBreaker breaker = client.breaker();
+            if (breaker != null) {
+                out.append("downstream_breaker_state{service=\"").append(client.service()).append("\"} ")
+                        .append(breaker.state().ordinal()).append('\n');
+            }
+        }
+        out.append("# TYPE downstream_breaker_opened_total counter\n");
+        for (ServiceClient client : serviceClients) {
+            CircuitBreaker breaker = client.breaker();
+            if (breaker != null) {
+                out.append("downstream_breaker_opened_total{service=\"").append(client.service()).append("\"} ")
+                        .append(breaker.timesOpened()).append('\n');
+            }
+        }
+        out.append("# TYPE downstream_coalesced_total counter\n");
+        for (ServiceClient client : serviceClients) {
+            SingleFlight<String, ServiceClient.ServiceResponse> gets = client.coalescedGets();
+            if (gets != null) {
+                out.append("downstream_coalesced_total{service=\"").append(client.service()).append("\"} ")
+                        .append(gets.shared()).append('\n');
+            }
+        }
+        out.append("# TYPE downstream_replica_healthy gauge\n");
+        for (ServiceClient client : serviceClients) {
+            for (ReplicaPool.Replica replica : client.replicas().replicas()) {
+                out.append("downstream_replica_healthy{service=\"").append(client.service()).append("\",replica=\"")
+                        .append(replica.baseUrl()).append("\"} ").append(replica.isHealthy() ? 1 : 0).append('\n');
+            }
+        }
+        out.append("# TYPE downstream_replica_in_flight gauge\n");
+        for (ServiceClient client : serviceClients) {
+            for (ReplicaPool.Replica replica : client.replicas().replicas()) {
+                out.append("downstream_replica_in_flight{service=\"").append(client.service()).append("\",replica=\"")
+                        .append(replica.baseUrl()).append("\"} ").append(replica.inFlight()).append('\n');
+            }
+        }
+        out.append("# TYPE downstream_rejected_total counter\n");
+        for (ServiceClient client : serviceClients) {
+            CircuitBreaker breaker = client.breaker();
+            out.append("downstream_rejected_total{service=\"").append(client.service()).append("\",reason=\"breaker_open\"} ")
+                    .append(breaker != null ? breaker.rejected() : 0).append('\n');
+            out.append("downstream_rejected_total{service=\"").append(client.service()).append("\",reason=\"in_flight_limit\"} ")
+                    .append(client.limitRejections()).append('\n');
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.csc301.controller;
+
+import com.csc301.util.JsonCodec;
+import com.csc301.util.JsonField;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A POST /order, /user or /product body decoded in one streaming pass; a field is null when the
+ * body did not contain it. {@code orders} is set only when "orders" is an array, and holds its
+ * elements decoded the same way, with null for any element that is not an object.
+ */
+public record OrderCommand(JsonField command, JsonField id, JsonField userId, JsonField productId,
+                           JsonField quantity, List<OrderCommand> orders) {
+
+    public static OrderCommand decode(String body) {
+        try {
+            JsonReader in = JsonCodec.beginObject(body);
+            OrderCommand command = readMembers(in);
+            JsonCodec.endDocument(in);
+            return command;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static OrderCommand readMembers(JsonReader in) throws IOException {
+        JsonField command = null, id = null, userId = null, productId = null, quantity = null;
+        List<OrderCommand> orders = null;
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "command" -> command = JsonField.read(in);
+                case "id" -> id = JsonField.read(in);
+                case "user_id" -> userId = JsonField.read(in);
+                case "product_id" -> productId = JsonField.read(in);
+                case "quantity" -> quantity = JsonField.read(in);
+                case "orders" -> {
+                    if (in.peek() == JsonToken.BEGIN_ARRAY) {
+                        orders = readItems(in);
+                    } else {
+                        in.skipValue();
+                        orders = null;
+                    }
+                }
+                default -> in.skipValue();
+            }
+        }
+        return new OrderCommand(command, id, userId, productId, quantity, orders);
+    }
+
+    private static List<OrderCommand> readItems(JsonReader in) throws IOException {
+        List<OrderCommand> items = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                items.add(readMembers(in));
+                in.endObject();
+            } else {
+                in.skipValue();
+                items.add(null);
+            }
+        }
+        in.endArray();
+        return items;
+    }
+}
@@ -1,20 +1,48 @@
 package com.csc301.controller;
 
 import com.csc301.model.Order;
+import com.csc301.model.UserPurchase;
+import com.csc301.repository.OrderJournalWriter;
 import com.csc301.repository.OrderRepository;
+import com.csc301.repository.OrderWriter;
+import com.csc301.repository.PurchaseCache;
+import com.csc301.repository.UserPurchaseRepository;
+import com.csc301.client.DownstreamUnavailableException;
+import com.csc301.client.MissingIdCache;
 import com.csc301.client.ServiceClient;
 import com.csc301.config.ConfigLoader;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.csc301.config.LatencyMetrics;
+import com.csc301.config.RequestBulkhead;
+import com.csc301.config.RequestBulkhead.RequestClass;
+import com.csc301.config.RequestTrace;
+import com.csc301.util.JsonBody;
+import com.csc301.util.JsonCodec;
+import com.csc301.util.JsonField;
+import com.google.gson.stream.JsonWriter;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @RestController
 public class OrderController {
@@ -22,81 +50,163 @@ public class OrderController {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Autowired
+    private UserPurchaseRepository purchaseRepository;
+
+    @Autowired
+    private PurchaseCache purchaseCache;
+
     @Autowired
     private ConfigurableApplicationContext applicationContext;
 
+    @Autowired
+    @Qualifier("userServiceClient")
     private ServiceClient userServiceClient;
+
+    @Autowired
+    @Qualifier("productServiceClient")
     private ServiceClient productServiceClient;
+
+    @Autowired
+    @Qualifier("missingUsers")
+    private MissingIdCache missingUsers;
+
+    @Autowired
+    @Qualifier("missingProducts")
+    private MissingIdCache missingProducts;
+
+    @Autowired
+    private RequestBulkhead bulkhead;
+
+    @Autowired
+    private OrderJournalWriter orderJournal;
+
+    @Autowired
+    private LatencyMetrics metrics;
+
     private ConfigLoader.ISCSConfig iscsConfig;
 
-    // Tracks whether the first command after startup has been handled
-    private final AtomicBoolean firstCommandHandled = new AtomicBoolean(false);
+    @Value("${order.batch.max-size:10000}")
+    private int batchMaxSize;
+
+    @Value("${order.batch.max-in-flight:32}")
+    private int batchMaxInFlight;
 
+    @Value("${trace.slow-log.threshold-ms:1000}")
+    private long slowOrderThresholdMs;
+
+    @Value("${trace.slow-log.sample-rate:1.0}")
+    private double slowOrderSampleRate;
+
+    // Set by the first command after startup; completes once its wipe (if any) is done
+    private final AtomicReference<CompletableFuture<Void>> firstCommand = new AtomicReference<>();
+
+    @PostConstruct
+    public void registerJournalCompensation() {
+        // An async order the database refuses was already answered 202; give its stock back
+        orderJournal.setRejectionHandler(order -> releaseStock(order.getProduct_id(), order.getQuantity()));
+    }
+
+    /**
+     * "place order" never holds a thread while it waits on ISCS: the lookups are chained with
+     * sendAsync and only the insert runs on the write bulkhead. Batch and rebuild commands do
+     * blocking work throughout, so they run entirely on the write bulkhead.
+     *
+     * "place order" answers with X-Request-Id and a Server-Timing breakdown of where its time went.
+     */
     @PostMapping("/order")
-    public ResponseEntity<?> placeOrder(@RequestBody String body) {
+    public CompletableFuture<ResponseEntity<?>> placeOrder(@RequestBody String body,
+            @RequestHeader(value = RequestTrace.ID_HEADER, required = false) String requestId) {
         handleFirstCommand(false);
+        OrderCommand json;
+        String command;
         try {
-            JsonObject json = JsonParser.parseString(body).getAsJsonObject();
-            String command = json.has("command") ? json.get("command").getAsString() : null;
-
-            if ("place order".equalsIgnoreCase(command)) {
-                return handlePlaceOrder(json);
-            }
-            return ResponseEntity.status(400).body("{\"error\": \"Invalid command\"}");
+            json = OrderCommand.decode(body);
+            command = json.command() != null ? json.command().asString() : null;
         } catch (Exception e) {
-            return ResponseEntity.status(400).body("{\"error\": \"Invalid JSON request\"}");
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body("{\"error\": \"Invalid JSON request\"}"));
+        }
+
+        if ("place order".equalsIgnoreCase(command)) {
+            RequestTrace trace = RequestTrace.begin(requestId);
+            // Set by whichever comes first: the deadline's 503 or the order being recorded
+            AtomicBoolean decided = new AtomicBoolean();
+            return timed("place order", () -> bulkhead.deadline(handlePlaceOrder(json, trace, decided), decided)
+                    .thenApply(response -> finishPlaceOrder(trace, response)));
+        }
+        if ("place orders".equalsIgnoreCase(command)) {
+            return timed("place orders", () -> bulkhead.supply(RequestClass.WRITE, () -> handlePlaceOrders(json)));
+        }
+        if ("rebuild purchases".equalsIgnoreCase(command)) {
+            return timed("rebuild purchases", () -> bulkhead.supply(RequestClass.WRITE, this::handleRebuildPurchases));
         }
+        return CompletableFuture.completedFuture(ResponseEntity.status(400).body("{\"error\": \"Invalid command\"}"));
     }
 
-    @PostMapping("/user")
-    public ResponseEntity<?> handleUserRequest(@RequestBody String body) {
+    @GetMapping("/order/{id}")
+    public WebAsyncTask<ResponseEntity<?>> getOrder(@PathVariable String id) {
+        return bulkhead.read(() -> {
+            LatencyMetrics.Timer timer = metrics.request("get order");
+            long start = timer.start();
+            return timer.stop(start, findOrder(id));
+        });
+    }
+
+    // Reports whether an order is still in this replica's journal or already committed
+    private ResponseEntity<?> findOrder(String id) {
         handleFirstCommand(false);
         try {
-            userServiceClient = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            JsonObject json = JsonParser.parseString(body).getAsJsonObject();
-
-            if (json.has("command")) {
-                ServiceClient.ServiceResponse response = userServiceClient.request("/user", "POST", body);
-                return ResponseEntity.status(response.statusCode).body(response.body);
-            }
-
-            if (json.has("id")) {
-                int id = parseIntStrict(json, "id");
-                ServiceClient.ServiceResponse response = userServiceClient.request("/user/" + id, "GET", "");
-                if (response.statusCode == 404) {
-                    return ResponseEntity.ok("{}");
+            String status = "pending";
+            Order order = orderJournal.findPending(id);
+            if (order == null) {
+                Optional<Order> saved = orderRepository.findById(id);
+                if (!saved.isPresent()) {
+                    return ResponseEntity.status(404).body("{\"error\": \"Order not found\"}");
                 }
-                return ResponseEntity.status(response.statusCode).body(response.body);
+                order = saved.get();
+                status = "committed";
             }
 
-            return ResponseEntity.status(400).body("{\"error\": \"Missing command or id\"}");
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
+            return ResponseEntity.ok(orderBody(order.getId(), order.getProduct_id(), order.getUser_id(),
+                    order.getQuantity(), status));
         } catch (Exception e) {
-            return ResponseEntity.status(500).body("{\"error\": \"Failed to reach User Service\"}");
+            return ResponseEntity.status(500).body("{\"error\": \"Failed to retrieve order\"}");
         }
     }
 
+    @PostMapping("/user")
+    public CompletableFuture<ResponseEntity<?>> handleUserRequest(@RequestBody String body) {
+        handleFirstCommand(false);
+        return timed("user command", () -> bulkhead.deadline(proxyCommand(userServiceClient, missingUsers, "/user", body, true)
+                .exceptionally(e -> unreachable(e, "User Service"))));
+    }
+
     @GetMapping("/user/{id}")
-    public ResponseEntity<?> getUser(@PathVariable int id) {
+    public CompletableFuture<ResponseEntity<?>> getUser(@PathVariable int id) {
         handleFirstCommand(false);
-        try {
-            userServiceClient = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            ServiceClient.ServiceResponse response = userServiceClient.request("/user/" + id, "GET", "");
-            return ResponseEntity.status(response.statusCode).body(response.body);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("{\"error\": \"Failed to reach User Service\"}");
-        }
+        return timed("get user", () -> bulkhead.deadline(lookupAsync(userServiceClient, missingUsers, "/user/", id)
+                .<ResponseEntity<?>>thenApply(response -> ResponseEntity.status(response.statusCode).body(response.body))
+                .exceptionally(e -> unreachable(e, "User Service"))));
     }
 
     // NEW: Get all products purchased by a specific user
     @GetMapping("/user/purchased/{userId}")
-    public ResponseEntity<?> getUserPurchased(@PathVariable int userId) {
+    public WebAsyncTask<ResponseEntity<?>> getUserPurchased(@PathVariable int userId) {
+        return bulkhead.admin(() -> {
+            LatencyMetrics.Timer timer = metrics.request("get purchased");
+            long start = timer.start();
+            return timer.stop(start, aggregatePurchases(userId));
+        });
+    }
+
+    private ResponseEntity<?> aggregatePurchases(int userId) {
         handleFirstCommand(false);
         try {
             // Verify user exists
-            userServiceClient = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            ServiceClient.ServiceResponse userResponse = userServiceClient.request("/user/" + userId, "GET", "");
+            ServiceClient.ServiceResponse userResponse = lookup(userServiceClient, missingUsers, "/user/", userId);
             if (userResponse.statusCode == 404) {
                 return ResponseEntity.status(404)
                         .header("Content-Type", "application/json")
@@ -108,63 +218,117 @@ public class OrderController {
                         .body("{\"error\": \"Failed to verify user\"}");
             }
 
-            // Aggregate order quantities by product_id
-            List<Order> orders = orderRepository.findByUser_id(userId);
-            Map<Integer, Integer> purchased = new HashMap<>();
-            for (Order order : orders) {
-                purchased.merge(order.getProduct_id(), order.getQuantity(), Integer::sum);
-            }
-
-            JsonObject result = new JsonObject();
-            for (Map.Entry<Integer, Integer> entry : purchased.entrySet()) {
-                result.addProperty(String.valueOf(entry.getKey()), entry.getValue());
+            // Totals per product_id come from the user_purchase aggregate, not the order history
+            long generation = purchaseCache.generation();
+            String body = purchaseCache.get(userId);
+            if (body == null) {
+                body = JsonCodec.toJson(purchasesBody(purchaseRepository.findByUser_id(userId)));
+                purchaseCache.put(userId, body, generation);
             }
             return ResponseEntity.ok()
                     .header("Content-Type", "application/json")
-                    .body(result.toString());
+                    .body(body);
         } catch (Exception e) {
+            if (DownstreamUnavailableException.isCause(e)) {
+                return ResponseEntity.status(503)
+                        .header("Content-Type", "application/json")
+                        .body("{\"error\": \"User Service unavailable\"}");
+            }
             return ResponseEntity.status(500)
                     .header("Content-Type", "application/json")
                     .body("{\"error\": \"Failed to retrieve purchases\"}");
         }
     }
 
+    @PostMapping("/user/bulk")
+    public CompletableFuture<ResponseEntity<?>> handleUserBulk(@RequestBody String body) {
+        handleFirstCommand(false);
+        return timed("user bulk", () -> bulkhead.deadline(proxyBulk(userServiceClient, missingUsers, "/user/bulk", body)
+                .exceptionally(e -> unreachable(e, "User Service"))));
+    }
+
+    @PostMapping("/product/bulk")
+    public CompletableFuture<ResponseEntity<?>> handleProductBulk(@RequestBody String body) {
+        handleFirstCommand(false);
+        return timed("product bulk", () -> bulkhead.deadline(proxyBulk(productServiceClient, missingProducts, "/product/bulk", body)
+                .exceptionally(e -> unreachable(e, "Product Service"))));
+    }
+
     @PostMapping("/product")
-    public ResponseEntity<?> handleProductRequest(@RequestBody String body) {
+    public CompletableFuture<ResponseEntity<?>> handleProductRequest(@RequestBody String body) {
         handleFirstCommand(false);
-        try {
-            productServiceClient = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            JsonObject json = JsonParser.parseString(body).getAsJsonObject();
+        return timed("product command", () -> bulkhead.deadline(proxyCommand(productServiceClient, missingProducts, "/product", body, false)
+                .exceptionally(e -> unreachable(e, "Product Service"))));
+    }
 
-            if (json.has("command")) {
-                ServiceClient.ServiceResponse response = productServiceClient.request("/product", "POST", body);
-                return ResponseEntity.status(response.statusCode).body(response.body);
-            }
+    @GetMapping("/product/{id}")
+    public CompletableFuture<ResponseEntity<?>> getProduct(@PathVariable int id) {
+        handleFirstCommand(false);
+        return timed("get product", () -> bulkhead.deadline(lookupAsync(productServiceClient, missingProducts, "/product/", id)
+                .<ResponseEntity<?>>thenApply(response -> ResponseEntity.status(response.statusCode).body(response.body))
+                .exceptionally(e -> unreachable(e, "Product Service"))));
+    }
 
-            if (json.has("id")) {
-                int id = parseIntStrict(json, "id");
-                ServiceClient.ServiceResponse response = productServiceClient.request("/product/" + id, "GET", "");
-                return ResponseEntity.status(response.statusCode).body(response.body);
-            }
+    // A call the breaker or in-flight limit refused is 503, like a full bulkhead; anything else stays 500
+    private static ResponseEntity<?> unreachable(Throwable error, String service) {
+        if (DownstreamUnavailableException.isCause(error)) {
+            return ResponseEntity.status(503).body("{\"error\": \"" + service + " unavailable\"}");
+        }
+        return ResponseEntity.status(500).body("{\"error\": \"Failed to reach " + service + "\"}");
+    }
 
-            return ResponseEntity.status(400).body("{\"error\": \"Missing command or id\"}");
+    // Times a future-returning handler until its future completes; a full bulkhead lane counts as 503
+    private CompletableFuture<ResponseEntity<?>> timed(String endpoint, Supplier<CompletableFuture<ResponseEntity<?>>> handler) {
+        LatencyMetrics.Timer timer = metrics.request(endpoint);
+        long start = timer.start();
+        try {
+            return timer.stopWhenDone(start, handler.get());
         } catch (RuntimeException e) {
-            return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("{\"error\": \"Failed to reach Product Service\"}");
+            timer.stop(start, e instanceof RejectedExecutionException ? 503 : LatencyMetrics.FAILED);
+            throw e;
         }
     }
 
-    @GetMapping("/product/{id}")
-    public ResponseEntity<?> getProduct(@PathVariable int id) {
-        handleFirstCommand(false);
-        try {
-            productServiceClient = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            ServiceClient.ServiceResponse response = productServiceClient.request("/product/" + id, "GET", "");
+    // Passes a bulk create through; any id it created may be in the negative cache, so that is cleared
+    private CompletableFuture<ResponseEntity<?>> proxyBulk(ServiceClient client, MissingIdCache missing, String path, String body) {
+        return client.requestAsync(path, "POST", body).thenApply(response -> {
+            if (response.statusCode == 200) {
+                missing.clear();
+                client.clearInFlight();
+            }
             return ResponseEntity.status(response.statusCode).body(response.body);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("{\"error\": \"Failed to reach Product Service\"}");
+        });
+    }
+
+    /**
+     * Forwards a POST /user or /product body: commands go downstream as-is, a bare id is a lookup.
+     * The future fails only when the downstream service cannot be reached.
+     */
+    private CompletableFuture<ResponseEntity<?>> proxyCommand(ServiceClient client, MissingIdCache missing, String path,
+                                                              String body, boolean missingAsEmpty) {
+        OrderCommand json;
+        int id;
+        try {
+            json = OrderCommand.decode(body);
+            if (json.command() != null) {
+                return client.requestAsync(path, "POST", body).thenApply(response -> {
+                    forgetId(client, missing, path, json.id());
+                    return ResponseEntity.status(response.statusCode).body(response.body);
+                });
+            }
+            if (json.id() == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(400).body("{\"error\": \"Missing command or id\"}"));
+            }
+            id = json.id().asIntStrict();
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}"));
         }
+        return lookupAsync(client, missing, path + "/", id).thenApply(response -> {
+            if (missingAsEmpty && response.statusCode == 404) {
+                return ResponseEntity.ok("{}");
+            }
+            return ResponseEntity.status(response.statusCode).body(response.body);
+        });
     }
 
     // Shutdown: gracefully stop all services
@@ -182,7 +346,7 @@ public class OrderController {
     // Restart: if this is the first command, preserve data; otherwise no-op
     @PostMapping("/restart")
     public ResponseEntity<?> restart() {
-        if (!firstCommandHandled.getAndSet(true)) {
+        if (firstCommand.compareAndSet(null, CompletableFuture.completedFuture(null))) {
             System.out.println("Restart is the first command — preserving existing data.");
         }
         return ResponseEntity.ok("{\"message\": \"restart acknowledged\"}");
@@ -191,96 +355,566 @@ public class OrderController {
     /**
      * Called before processing any user-facing request.
      * On the very first call: if isRestart=false, wipe all DB data.
+     * Requests that arrive while the wipe runs wait for it, so none of them sees data from before.
      */
     private void handleFirstCommand(boolean isRestart) {
-        if (firstCommandHandled.getAndSet(true)) {
-            return; // already handled for previous commands
-        }
-        if (!isRestart) {
-            System.out.println("First command is NOT restart — wiping all data.");
-            wipeAllData();
+        CompletableFuture<Void> handled = firstCommand.get();
+        if (handled == null) {
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            if (firstCommand.compareAndSet(null, mine)) {
+                try {
+                    if (!isRestart) {
+                        System.out.println("First command is NOT restart — wiping all data.");
+                        wipeAllData();
+                    }
+                } finally {
+                    mine.complete(null);
+                }
+                return;
+            }
+            handled = firstCommand.get();
         }
+        handled.join();
     }
 
-    /** Clears all orders in the Order DB and signals UserService + ProductService to clear too. */
+    /**
+     * Clears all orders in the Order DB and signals UserService + ProductService to clear too.
+     * Every table is TRUNCATEd, which takes the same few milliseconds however many rows it holds.
+     * The order tables go first, then users and products are wiped in parallel: both cascade to
+     * the order tables, and taking those locks after this one finishes keeps them from deadlocking.
+     */
     private void wipeAllData() {
+        long start = System.nanoTime();
         try {
-            orderRepository.deleteAll();
+            orderJournal.clear();
+            orderWriter.deleteAll();
         } catch (Exception e) {
             System.err.println("Failed to wipe orders: " + e.getMessage());
         }
+        missingUsers.clear();
+        missingProducts.clear();
+        CompletableFuture<Void> users = wipeService(userServiceClient, "/user/deleteall");
+        CompletableFuture<Void> products = wipeService(productServiceClient, "/product/deleteall");
+        CompletableFuture.allOf(users, products).join();
+        userServiceClient.clearInFlight();
+        productServiceClient.clearInFlight();
+        System.out.println("Wiped all data in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    private CompletableFuture<Void> wipeService(ServiceClient client, String path) {
+        // A wipe has to reach the service even while its breaker is open
+        return client.requestUnguardedAsync(path, "DELETE", "")
+                .<Void>thenApply(response -> {
+                    if (response.statusCode != 200) {
+                        System.err.println("Failed to wipe " + path + ": status " + response.statusCode);
+                    }
+                    return null;
+                })
+                .exceptionally(e -> {
+                    System.err.println("Failed to wipe " + path + ": " + e.getMessage());
+                    return null;
+                });
+    }
+
+    private CompletableFuture<ResponseEntity<?>> handlePlaceOrder(OrderCommand json, RequestTrace trace,
+                                                                  AtomicBoolean decided) {
+        int userId;
+        int productId;
+        int quantity;
         try {
-            ServiceClient client = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            client.request("/user/deleteall", "DELETE", "");
-        } catch (Exception ignored) {}
-        try {
-            ServiceClient client = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            client.request("/product/deleteall", "DELETE", "");
-        } catch (Exception ignored) {}
+            if (json.userId() == null || json.productId() == null || json.quantity() == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(400).body("{\"status\": \"Invalid Request\"}"));
+            }
+            userId = json.userId().asIntStrict();
+            productId = json.productId().asIntStrict();
+            quantity = json.quantity().asIntStrict();
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body("{\"status\": \"Invalid Request\"}"));
+        }
+        if (quantity <= 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body("{\"status\": \"Invalid Request\"}"));
+        }
+
+        // Ids that recently 404'd are rejected without going downstream
+        if (missingUsers.get(userId) != null || missingProducts.get(productId) != null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(404).body("{\"status\": \"Invalid Request\"}"));
+        }
+
+        // With either breaker open the order cannot go through, so nothing is sent and no stock is held
+        if (userServiceClient.isUnavailable() || productServiceClient.isUnavailable()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(503).body("{\"error\": \"Service unavailable\"}"));
+        }
+
+        // Validate the user and reserve stock concurrently; the first failure decides the response
+        CompletableFuture<ServiceClient.ServiceResponse> userLookup =
+                userServiceClient.requestAsync("/user/" + userId, "GET", "", trace.id());
+        CompletableFuture<ServiceClient.ServiceResponse> reservation =
+                productServiceClient.requestAsync("/product", "POST", stockCommand("reserve", productId, quantity), trace.id());
+
+        CompletableFuture<ResponseEntity<?>> rejection = new CompletableFuture<>();
+        userLookup.thenAccept(r -> {
+            addDownstreamPhases(trace, "user", r);
+            missingUsers.record(userId, r);
+            ResponseEntity<?> rejected = rejectOrder(r, null);
+            if (rejected != null) rejection.complete(rejected);
+        });
+        reservation.thenAccept(r -> {
+            addDownstreamPhases(trace, "reserve", r);
+            missingProducts.record(productId, r);
+            ResponseEntity<?> rejected = rejectOrder(null, r);
+            if (rejected != null) rejection.complete(rejected);
+        });
+
+        return CompletableFuture.anyOf(rejection, CompletableFuture.allOf(userLookup, reservation))
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        abandonOrder(reservation, productId, quantity);
+                        return CompletableFuture.<ResponseEntity<?>>completedFuture(
+                                DownstreamUnavailableException.isCause(error)
+                                        ? ResponseEntity.status(503).body("{\"error\": \"Service unavailable\"}")
+                                        : ResponseEntity.status(500).body("{\"error\": \"Failed to process order\"}"));
+                    }
+                    ResponseEntity<?> rejected = rejection.isDone()
+                            ? rejection.join()
+                            : rejectOrder(userLookup.join(), reservation.join());
+                    if (rejected != null) {
+                        abandonOrder(reservation, productId, quantity);
+                        return CompletableFuture.<ResponseEntity<?>>completedFuture(rejected);
+                    }
+                    return commitOrder(new Order(userId, productId, quantity), trace, decided);
+                })
+                .thenCompose(response -> response);
     }
 
-    private ResponseEntity<?> handlePlaceOrder(JsonObject json) {
+    /**
+     * Records an order whose stock is already reserved, giving the stock back if that fails.
+     * Async mode answers once the order is journaled; otherwise the insert runs on the write bulkhead.
+     * If the deadline has already answered 503 by the time the order would be recorded, it is dropped
+     * and the stock given back instead, so a timed-out order never takes effect.
+     */
+    private CompletableFuture<ResponseEntity<?>> commitOrder(Order order, RequestTrace trace, AtomicBoolean decided) {
+        int productId = order.getProduct_id();
+        int userId = order.getUser_id();
+        int quantity = order.getQuantity();
+        boolean journaled = orderJournal.isEnabled();
         try {
-            if (!json.has("user_id") || !json.has("product_id") || !json.has("quantity")) {
-                return ResponseEntity.status(400).body("{\"status\": \"Invalid Request\"}");
+            long queued = System.nanoTime();
+            if (journaled && !decided.compareAndSet(false, true)) {
+                return CompletableFuture.completedFuture(expiredOrder(productId, quantity));
             }
+            if (journaled && orderJournal.append(order)) {
+                trace.add("journal", System.nanoTime() - queued);
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.status(202).body(orderBody(order.getId(), productId, userId, quantity, "Accepted")));
+            }
+            return bulkhead.<ResponseEntity<?>>supply(RequestClass.WRITE, () -> {
+                // A full journal falls through here having already claimed the response
+                if (!journaled && !decided.compareAndSet(false, true)) {
+                    return expiredOrder(productId, quantity);
+                }
+                long saving = System.nanoTime();
+                trace.add("write-queue", saving - queued);
+                orderWriter.save(order);
+                trace.add("save", System.nanoTime() - saving);
+                return ResponseEntity.ok(orderBody(null, productId, userId, quantity, "Success"));
+            }).exceptionally(e -> {
+                releaseStock(productId, quantity);
+                return failedOrder(e);
+            });
+        } catch (RuntimeException e) {
+            releaseStock(productId, quantity);
+            return CompletableFuture.completedFuture(failedOrder(e));
+        }
+    }
 
-            int userId = parseIntStrict(json, "user_id");
-            int productId = parseIntStrict(json, "product_id");
-            int quantity = parseIntStrict(json, "quantity");
+    // The client already has the deadline's 503; this response is discarded
+    private ResponseEntity<?> expiredOrder(int productId, int quantity) {
+        releaseStock(productId, quantity);
+        return ResponseEntity.status(503).body("{\"error\": \"Request timed out\"}");
+    }
+
+    /**
+     * Splits one downstream call into the service's own "app" time, what ISCS added on top
+     * ("-iscs") and the rest ("-net": the hops and queueing on both sides). A response without
+     * Server-Timing is counted whole under phase. The user and reserve calls overlap in time.
+     */
+    private static void addDownstreamPhases(RequestTrace trace, String phase, ServiceClient.ServiceResponse response) {
+        long app = RequestTrace.durationNanos(response.serverTiming, "app");
+        long iscs = RequestTrace.durationNanos(response.serverTiming, "iscs");
+        if (app < 0) {
+            trace.add(phase, Math.max(0, response.elapsedNanos));
+            return;
+        }
+        trace.add(phase, app);
+        long relayed = app;
+        if (iscs >= app) {
+            trace.add(phase + "-iscs", iscs - app);
+            relayed = iscs;
+        }
+        if (response.elapsedNanos >= relayed) {
+            trace.add(phase + "-net", response.elapsedNanos - relayed);
+        }
+    }
+
+    // Adds the id and Server-Timing headers; orders over the threshold are logged with their phases, sampled
+    private ResponseEntity<?> finishPlaceOrder(RequestTrace trace, ResponseEntity<?> response) {
+        ResponseEntity<?> traced = trace.finish(response, "total");
+        long elapsedMs = trace.elapsedNanos() / 1_000_000;
+        if (elapsedMs >= slowOrderThresholdMs && ThreadLocalRandom.current().nextDouble() < slowOrderSampleRate) {
+            System.err.println("Slow order " + trace.id() + ": " + elapsedMs + " ms, status "
+                    + response.getStatusCode().value() + " [" + trace.serverTiming() + "]");
+        }
+        return traced;
+    }
+
+    // A full write bulkhead is 503 as everywhere else; a failed insert keeps its old 400
+    private static ResponseEntity<?> failedOrder(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(503).body("{\"error\": \"Service busy\"}");
+        }
+        if (cause instanceof RuntimeException) {
+            return ResponseEntity.status(400).body("{\"status\": \"Invalid Request\"}");
+        }
+        return ResponseEntity.status(500).body("{\"error\": \"Failed to process order\"}");
+    }
+
+    // Recomputes user_purchase from the order table, e.g. after orders were loaded outside this service
+    private ResponseEntity<?> handleRebuildPurchases() {
+        try {
+            int rows = orderWriter.rebuildPurchases();
+            return ResponseEntity.ok("{\"status\": \"Success\", \"rows\": " + rows + "}");
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("{\"error\": \"Failed to rebuild purchases\"}");
+        }
+    }
 
-            if (quantity <= 0) {
+    /**
+     * Places many orders in one request: each distinct user is validated once, each product gets
+     * one net stock reservation, and all accepted orders are inserted in a single batched save.
+     */
+    private ResponseEntity<?> handlePlaceOrders(OrderCommand json) {
+        try {
+            List<OrderCommand> orders = json.orders();
+            if (orders == null) {
                 return ResponseEntity.status(400).body("{\"status\": \"Invalid Request\"}");
             }
-
-            userServiceClient = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            ServiceClient.ServiceResponse userResponse = userServiceClient.request("/user/" + userId, "GET", "");
-            if (userResponse.statusCode != 200) {
-                return ResponseEntity.status(userResponse.statusCode).body("{\"status\": \"Invalid Request\"}");
+            if (orders.size() > batchMaxSize) {
+                return ResponseEntity.status(400).body("{\"status\": \"Too many orders\"}");
             }
 
-            productServiceClient = new ServiceClient(iscsConfig.ip, iscsConfig.port);
-            ServiceClient.ServiceResponse productResponse = productServiceClient.request("/product/" + productId, "GET", "");
-            if (productResponse.statusCode != 200) {
-                return ResponseEntity.status(productResponse.statusCode).body("{\"status\": \"Invalid Request\"}");
+            List<BatchItem> items = new ArrayList<>(orders.size());
+            for (OrderCommand order : orders) {
+                items.add(BatchItem.parse(order));
             }
 
-            JsonObject productResult = JsonParser.parseString(productResponse.body).getAsJsonObject();
-            int currentQuantity = productResult.get("quantity").getAsInt();
-            if (currentQuantity < quantity) {
-                return ResponseEntity.ok("{\"status\": \"Exceeded quantity limit\"}");
+            // One lookup per distinct user
+            Map<Integer, Integer> userStatuses = fetchStatuses(userServiceClient, missingUsers, "/user/",
+                    items.stream().filter(i -> i.status == null).map(i -> i.userId).distinct().toList());
+            Map<Integer, List<BatchItem>> byProduct = new LinkedHashMap<>();
+            for (BatchItem item : items) {
+                if (item.status != null) continue;
+                if (userStatuses.get(item.userId) != 200) {
+                    item.status = "Invalid Request";
+                    continue;
+                }
+                byProduct.computeIfAbsent(item.productId, id -> new ArrayList<>()).add(item);
             }
 
-            int newQuantity = currentQuantity - quantity;
-            JsonObject updateProduct = new JsonObject();
-            updateProduct.addProperty("command", "update");
-            updateProduct.addProperty("id", productId);
-            updateProduct.addProperty("quantity", newQuantity);
-
-            productServiceClient.request("/product", "POST", updateProduct.toString());
-
-            Order order = new Order(userId, productId, quantity);
-            orderRepository.save(order);
+            // One net reservation per product, then one batched insert for everything accepted
+            Map<Integer, Integer> reserved = new HashMap<>();
+            try {
+                reserveGroups(byProduct, reserved);
+                List<Order> accepted = new ArrayList<>();
+                for (BatchItem item : items) {
+                    if (item.status == null) {
+                        accepted.add(new Order(item.userId, item.productId, item.quantity));
+                    }
+                }
+                orderWriter.saveAll(accepted);
+            } catch (Exception e) {
+                reserved.forEach(this::releaseStock);
+                throw e;
+            }
 
-            JsonObject response = new JsonObject();
-            response.addProperty("product_id", productId);
-            response.addProperty("user_id", userId);
-            response.addProperty("quantity", quantity);
-            response.addProperty("status", "Success");
-            return ResponseEntity.ok(response.toString());
+            for (BatchItem item : items) {
+                if (item.status == null) item.status = "Success";
+            }
+            return ResponseEntity.ok((JsonBody) out -> {
+                out.beginObject().name("status").value("Success").name("results").beginArray();
+                for (BatchItem item : items) {
+                    item.writeTo(out);
+                }
+                out.endArray().endObject();
+            });
         } catch (RuntimeException e) {
+            if (DownstreamUnavailableException.isCause(e)) {
+                return ResponseEntity.status(503).body("{\"error\": \"Service unavailable\"}");
+            }
             return ResponseEntity.status(400).body("{\"status\": \"Invalid Request\"}");
         } catch (Exception e) {
             return ResponseEntity.status(500).body("{\"error\": \"Failed to process order\"}");
         }
     }
 
-    private int parseIntStrict(JsonObject json, String fieldName) {
-        double value = json.get(fieldName).getAsDouble();
-        if (value % 1 != 0) {
-            throw new IllegalArgumentException("Non-integer value for field: " + fieldName);
+    /**
+     * GETs prefix + id for every id not already known missing, at most batchMaxInFlight at a time,
+     * and returns status codes by id.
+     */
+    private Map<Integer, Integer> fetchStatuses(ServiceClient client, MissingIdCache missing, String prefix,
+                                                List<Integer> ids) throws Exception {
+        Map<Integer, Integer> statuses = new HashMap<>();
+        List<Integer> unknown = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            if (missing.get(id) != null) {
+                statuses.put(id, 404);
+            } else {
+                unknown.add(id);
+            }
         }
-        return (int) value;
+        for (int start = 0; start < unknown.size(); start += batchMaxInFlight) {
+            List<Integer> window = unknown.subList(start, Math.min(unknown.size(), start + batchMaxInFlight));
+            List<CompletableFuture<ServiceClient.ServiceResponse>> calls = new ArrayList<>(window.size());
+            for (int id : window) {
+                calls.add(client.requestAsync(prefix + id, "GET", ""));
+            }
+            awaitAll(calls);
+            for (int i = 0; i < window.size(); i++) {
+                ServiceClient.ServiceResponse response = result(calls.get(i));
+                missing.record(window.get(i), response);
+                statuses.put(window.get(i), response.statusCode);
+            }
+        }
+        return statuses;
+    }
+
+    /** Non-blocking {@link #lookup}. */
+    private CompletableFuture<ServiceClient.ServiceResponse> lookupAsync(ServiceClient client, MissingIdCache missing,
+                                                                        String prefix, int id) {
+        ServiceClient.ServiceResponse cached = missing.get(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return client.requestAsync(prefix + id, "GET", "").thenApply(response -> {
+            missing.record(id, response);
+            return response;
+        });
+    }
+
+    /** GET prefix + id, answered from the negative cache when the id recently 404'd. */
+    private ServiceClient.ServiceResponse lookup(ServiceClient client, MissingIdCache missing, String prefix, int id)
+            throws Exception {
+        ServiceClient.ServiceResponse cached = missing.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        ServiceClient.ServiceResponse response = client.request(prefix + id, "GET", "");
+        missing.record(id, response);
+        return response;
+    }
+
+    // A proxied command may have created or changed the id: stop treating it as missing, and make later
+    // GETs of it skip a call that started before the command
+    private void forgetId(ServiceClient client, MissingIdCache missing, String path, JsonField id) {
+        if (id != null && id.isNumber()) {
+            missing.forget(id.asInt());
+            client.forgetInFlight(path + "/" + id.asInt());
+        }
+    }
+
+    /**
+     * Reserves the summed quantity of each product group. If a product cannot cover the whole group,
+     * items are accepted in request order up to the stock on hand and the rest are marked exceeded.
+     * Records the quantity actually reserved per product in {@code reserved} so it can be released on failure.
+     */
+    private void reserveGroups(Map<Integer, List<BatchItem>> byProduct, Map<Integer, Integer> reserved) throws Exception {
+        List<Integer> productIds = new ArrayList<>(byProduct.keySet());
+        for (int start = 0; start < productIds.size(); start += batchMaxInFlight) {
+            List<Integer> window = productIds.subList(start, Math.min(productIds.size(), start + batchMaxInFlight));
+            List<CompletableFuture<ServiceClient.ServiceResponse>> calls = new ArrayList<>(window.size());
+            for (int productId : window) {
+                int total = byProduct.get(productId).stream().mapToInt(i -> i.quantity).sum();
+                calls.add(productServiceClient.requestAsync("/product", "POST", stockCommand("reserve", productId, total)));
+            }
+            // Every reservation that went through is recorded before any failure is rethrown, so the
+            // caller's compensation releases all of them
+            awaitAll(calls);
+            for (int i = 0; i < window.size(); i++) {
+                CompletableFuture<ServiceClient.ServiceResponse> call = calls.get(i);
+                if (!call.isCompletedExceptionally() && call.join().statusCode == 200) {
+                    int productId = window.get(i);
+                    reserved.put(productId, byProduct.get(productId).stream().mapToInt(item -> item.quantity).sum());
+                }
+            }
+            for (int i = 0; i < window.size(); i++) {
+                int productId = window.get(i);
+                List<BatchItem> group = byProduct.get(productId);
+                ServiceClient.ServiceResponse response = result(calls.get(i));
+                if (response.statusCode == 409) {
+                    int taken = reservePartial(productId, group);
+                    if (taken > 0) reserved.put(productId, taken);
+                } else if (response.statusCode != 200) {
+                    group.forEach(item -> item.status = "Invalid Request");
+                }
+            }
+        }
+    }
+
+    // Waits until every call has finished, whether or not some of them failed
+    private static void awaitAll(List<CompletableFuture<ServiceClient.ServiceResponse>> calls) {
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> null).join();
+    }
+
+    // The call's response, or the exception it failed with rather than an ExecutionException around it,
+    // so a refused call still reads as a DownstreamUnavailableException
+    private static ServiceClient.ServiceResponse result(CompletableFuture<ServiceClient.ServiceResponse> call)
+            throws Exception {
+        try {
+            return call.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /** Fits as many of the group's items as the current stock allows; returns the quantity reserved. */
+    private int reservePartial(int productId, List<BatchItem> group) throws Exception {
+        ServiceClient.ServiceResponse product = productServiceClient.request("/product/" + productId, "GET", "");
+        int available = product.statusCode == 200
+                ? OrderCommand.decode(product.body).quantity().asInt()
+                : 0;
+
+        int take = 0;
+        for (BatchItem item : group) {
+            if (take + item.quantity <= available) {
+                take += item.quantity;
+            } else {
+                item.status = "Exceeded quantity limit";
+            }
+        }
+        if (take > 0) {
+            ServiceClient.ServiceResponse response =
+                    productServiceClient.request("/product", "POST", stockCommand("reserve", productId, take));
+            if (response.statusCode != 200) {
+                // Stock moved underneath us; give up on the whole group rather than guess again
+                group.forEach(item -> item.status = "Exceeded quantity limit");
+                return 0;
+            }
+        }
+        return take;
+    }
+
+    /** One entry of a "place orders" batch; status stays null while the item is still going through. */
+    private static class BatchItem {
+        int userId;
+        int productId;
+        int quantity;
+        String status;
+        boolean parsed;
+
+        static BatchItem parse(OrderCommand json) {
+            BatchItem item = new BatchItem();
+            try {
+                if (json == null || json.userId() == null || json.productId() == null || json.quantity() == null) {
+                    item.status = "Invalid Request";
+                    return item;
+                }
+                item.userId = json.userId().asIntStrict();
+                item.productId = json.productId().asIntStrict();
+                item.quantity = json.quantity().asIntStrict();
+                item.parsed = true;
+                if (item.quantity <= 0) {
+                    item.status = "Invalid Request";
+                }
+            } catch (RuntimeException e) {
+                item.status = "Invalid Request";
+            }
+            return item;
+        }
+
+        void writeTo(JsonWriter out) throws IOException {
+            out.beginObject();
+            if (parsed) {
+                out.name("product_id").value(productId)
+                        .name("user_id").value(userId)
+                        .name("quantity").value(quantity);
+            }
+            out.name("status").value(status).endObject();
+        }
+    }
+
+    /**
+     * Maps downstream validation results to an order rejection, or null if nothing has failed yet.
+     * Either response may be null while its call is still in flight.
+     */
+    private ResponseEntity<?> rejectOrder(ServiceClient.ServiceResponse userResponse,
+                                          ServiceClient.ServiceResponse productResponse) {
+        if (userResponse != null && userResponse.statusCode != 200) {
+            return ResponseEntity.status(userResponse.statusCode).body("{\"status\": \"Invalid Request\"}");
+        }
+        if (productResponse != null && productResponse.statusCode == 409) {
+            return ResponseEntity.ok("{\"status\": \"Exceeded quantity limit\"}");
+        }
+        if (productResponse != null && productResponse.statusCode != 200) {
+            return ResponseEntity.status(productResponse.statusCode).body("{\"status\": \"Invalid Request\"}");
+        }
+        return null;
+    }
+
+    /** Compensates a rejected or failed order: gives back stock if the reservation went through. */
+    private void abandonOrder(CompletableFuture<ServiceClient.ServiceResponse> reservation,
+                              int productId, int quantity) {
+        // The user lookup is left to finish: cancelling an in-flight HttpClient exchange can close a
+        // pooled connection that another request has already picked up.
+        // The reservation may still be in flight; release whenever it lands
+        reservation.thenAccept(r -> {
+            if (r.statusCode == 200) releaseStock(productId, quantity);
+        });
+    }
+
+    private String stockCommand(String command, int productId, int quantity) {
+        return JsonCodec.toJson(out -> out.beginObject()
+                .name("command").value(command)
+                .name("id").value(productId)
+                .name("quantity").value(quantity)
+                .endObject());
+    }
+
+    // A user's totals per product_id, as GET /user/purchased reports them
+    static JsonBody purchasesBody(List<UserPurchase> purchases) {
+        return out -> {
+            out.beginObject();
+            for (UserPurchase purchase : purchases) {
+                out.name(String.valueOf(purchase.getProduct_id())).value(purchase.getTotal_quantity());
+            }
+            out.endObject();
+        };
+    }
+
+    // An order as reported to the caller; id is left out for synchronous placements
+    static JsonBody orderBody(String id, int productId, int userId, int quantity, String status) {
+        return out -> {
+            out.beginObject();
+            if (id != null) {
+                out.name("id").value(id);
+            }
+            out.name("product_id").value(productId)
+                    .name("user_id").value(userId)
+                    .name("quantity").value(quantity)
+                    .name("status").value(status)
+                    .endObject();
+        };
+    }
+
+    /** Best-effort compensation when an order is not recorded after its stock was reserved. */
+    private void releaseStock(int productId, int quantity) {
+        productServiceClient.requestUnguardedAsync("/product", "POST", stockCommand("release", productId, quantity))
+                .exceptionally(e -> {
+                    System.err.println("Failed to release " + quantity + " of product " + productId + ": " + e.getMessage());
+                    return null;
+                });
     }
 
     public void setISCSConfig(ConfigLoader.ISCSConfig config) {
@@ -3,12 +3,16 @@ package com.csc301.model;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
 import java.util.UUID;
 
 @Entity
 @Table(name = "\"order\"")
-public class Order {
+public class Order implements Persistable<String> {
     @Id
     private String id;
 
@@ -21,6 +25,10 @@ public class Order {
     @Column(nullable = false)
     private int quantity;
 
+    // Ids are assigned up front, so tell Spring Data which rows are new to get a plain INSERT instead of merge
+    @Transient
+    private boolean isNew = true;
+
     public Order() {
         this.id = UUID.randomUUID().toString();
     }
@@ -43,4 +51,11 @@ public class Order {
 
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
 }
@@ -0,0 +1,63 @@
+package com.csc301.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+// Running total of each product a user has ordered, kept in step with the order table
+@Entity
+@Table(name = "user_purchase")
+@IdClass(UserPurchase.Key.class)
+public class UserPurchase {
+    @Id
+    @Column(name = "user_id")
+    private int user_id;
+
+    @Id
+    @Column(name = "product_id")
+    private int product_id;
+
+    @Column(name = "total_quantity", nullable = false)
+    private long total_quantity;
+
+    public UserPurchase() {}
+
+    public UserPurchase(int user_id, int product_id, long total_quantity) {
+        this.user_id = user_id;
+        this.product_id = product_id;
+        this.total_quantity = total_quantity;
+    }
+
+    public int getUser_id() { return user_id; }
+    public int getProduct_id() { return product_id; }
+    public long getTotal_quantity() { return total_quantity; }
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int user_id;
+        private int product_id;
+
+        public Key() {}
+
+        public Key(int user_id, int product_id) {
+            this.user_id = user_id;
+            this.product_id = product_id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return user_id == other.user_id && product_id == other.product_id;
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(user_id, product_id); }
+    }
+}
@@ -0,0 +1,195 @@
+package com.csc301.repository;
+
+import com.csc301.model.Order;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped log of accepted orders that are not yet in Postgres.
+ *
+ * Layout: a 64-byte header (magic, version, epoch, checkpoint) followed by fixed 40-byte records
+ * (epoch, user_id, product_id, quantity, id as two longs, CRC32). Records before the checkpoint are
+ * committed to the database; the tail is found on open by scanning forward until a record has the
+ * wrong epoch or a bad CRC, so a torn write at the end is simply dropped. Once everything is
+ * committed the journal rewinds to the start and bumps the epoch, which invalidates the old records.
+ * Under steady load it rarely drains completely, so once the committed prefix covers half the file the
+ * uncommitted records are copied to the start under the next epoch instead (compaction).
+ *
+ * Not thread-safe; {@link OrderJournalWriter} serialises access.
+ */
+public class OrderJournal implements Closeable {
+    private static final int MAGIC = 0x4F4A524E; // "OJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 40;
+    private static final int CRC_OFFSET = 32;
+
+    private static final int MAGIC_POS = 0;
+    private static final int VERSION_POS = 4;
+    private static final int EPOCH_POS = 8;
+    private static final int CHECKPOINT_POS = 12;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final CRC32 crc = new CRC32();
+    private int epoch;
+    private int checkpoint;
+    private int tail;
+
+    private OrderJournal(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /** Opens (or creates) the journal at path, holding at least capacity records. */
+    public static OrderJournal open(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existing = channel.size();
+        int records = Math.max(capacity, (int) Math.max(0, (existing - HEADER_SIZE) / RECORD_SIZE));
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) records * RECORD_SIZE);
+
+        OrderJournal journal = new OrderJournal(channel, buffer, records);
+        if (existing < HEADER_SIZE || buffer.getInt(MAGIC_POS) != MAGIC) {
+            journal.writeHeader(0, 0);
+        } else if (buffer.getInt(VERSION_POS) != VERSION) {
+            channel.close();
+            throw new IOException("Unsupported order journal version " + buffer.getInt(VERSION_POS));
+        }
+        journal.epoch = buffer.getInt(EPOCH_POS);
+        journal.checkpoint = Math.min(buffer.getInt(CHECKPOINT_POS), records);
+        journal.tail = journal.checkpoint;
+        while (journal.tail < records && journal.isValid(journal.tail)) {
+            journal.tail++;
+        }
+        return journal;
+    }
+
+    /** Orders between the checkpoint and the tail, in append order. */
+    public List<Order> uncommitted() {
+        List<Order> orders = new ArrayList<>(tail - checkpoint);
+        for (int index = checkpoint; index < tail; index++) {
+            orders.add(read(index));
+        }
+        return orders;
+    }
+
+    /** Appends order, or returns false when the journal is full. */
+    public boolean append(Order order) {
+        if (tail == capacity) {
+            return false;
+        }
+        write(tail, order, epoch);
+        tail++;
+        return true;
+    }
+
+    /** Marks the next count records as written to the database. */
+    public void commit(int count) {
+        checkpoint = Math.min(tail, checkpoint + count);
+        if (checkpoint == tail) {
+            rewind();
+        } else if (checkpoint >= capacity / 2) {
+            compact();
+        } else {
+            buffer.putInt(CHECKPOINT_POS, checkpoint);
+        }
+    }
+
+    /** Drops every record, committed or not. */
+    public void reset() {
+        checkpoint = tail;
+        rewind();
+    }
+
+    /** Flushes mapped writes to the storage device, surviving an OS crash rather than just a process crash. */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void rewind() {
+        // Epoch first: if we crash before the checkpoint is rewritten, the stale records no longer match
+        epoch++;
+        buffer.putInt(EPOCH_POS, epoch);
+        checkpoint = 0;
+        tail = 0;
+        buffer.putInt(CHECKPOINT_POS, 0);
+    }
+
+    private void compact() {
+        // With the checkpoint past the middle the live records fit in the committed prefix, so the
+        // copy never overwrites a record it has yet to read, and the old copies stay valid until the
+        // header switches over
+        int live = tail - checkpoint;
+        int next = epoch + 1;
+        for (int index = 0; index < live; index++) {
+            write(index, read(checkpoint + index), next);
+        }
+        buffer.force();
+        // Epoch and checkpoint in one aligned store, so a crash sees either the old layout or the new one
+        buffer.putLong(EPOCH_POS, (long) next << 32);
+        epoch = next;
+        checkpoint = 0;
+        tail = live;
+    }
+
+    private void write(int index, Order order, int recordEpoch) {
+        int pos = position(index);
+        UUID id = UUID.fromString(order.getId());
+        buffer.putInt(pos, recordEpoch);
+        buffer.putInt(pos + 4, order.getUser_id());
+        buffer.putInt(pos + 8, order.getProduct_id());
+        buffer.putInt(pos + 12, order.getQuantity());
+        buffer.putLong(pos + 16, id.getMostSignificantBits());
+        buffer.putLong(pos + 24, id.getLeastSignificantBits());
+        // CRC last, so a record is only valid once it is complete
+        buffer.putInt(pos + CRC_OFFSET, checksum(pos));
+    }
+
+    private void writeHeader(int epoch, int checkpoint) {
+        buffer.putInt(MAGIC_POS, MAGIC);
+        buffer.putInt(VERSION_POS, VERSION);
+        buffer.putInt(EPOCH_POS, epoch);
+        buffer.putInt(CHECKPOINT_POS, checkpoint);
+    }
+
+    private boolean isValid(int index) {
+        int pos = position(index);
+        return buffer.getInt(pos) == epoch && buffer.getInt(pos + CRC_OFFSET) == checksum(pos);
+    }
+
+    private Order read(int index) {
+        int pos = position(index);
+        Order order = new Order(buffer.getInt(pos + 4), buffer.getInt(pos + 8), buffer.getInt(pos + 12));
+        order.setId(new UUID(buffer.getLong(pos + 16), buffer.getLong(pos + 24)).toString());
+        return order;
+    }
+
+    private int checksum(int pos) {
+        crc.reset();
+        crc.update(buffer.slice(pos, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static int position(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
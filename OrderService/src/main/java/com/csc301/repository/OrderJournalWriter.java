@@ -0,0 +1,299 @@
+package com.csc301.repository;
+
+import com.csc301.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous order acceptance: orders are appended to the local {@link OrderJournal} and a single
+ * background thread drains them into the order table in batches. Anything still in the journal at
+ * startup (a crash or kill mid-drain) is replayed, skipping ids that already reached Postgres.
+ * If a batch fails its orders are saved one at a time, and any the database rejects outright are
+ * dropped and handed to the rejection handler, so one bad row cannot hold up everything behind it.
+ *
+ * Pending orders are only visible on the replica that accepted them, so GET /order/{id} through
+ * the load balancer may answer 404 until the order is committed.
+ */
+@Component
+public class OrderJournalWriter {
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Value("${order.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.journal.path:order-journal.dat}")
+    private String journalPath;
+
+    @Value("${order.journal.capacity:262144}")
+    private int capacity;
+
+    @Value("${order.journal.batch-size:1000}")
+    private int batchSize;
+
+    // How long the writer waits for a batch to fill before flushing what it has
+    @Value("${order.journal.max-delay-ms:5}")
+    private long maxDelayMs;
+
+    // msync every append; without it a process crash loses nothing but an OS crash can
+    @Value("${order.journal.force:false}")
+    private boolean forceEachAppend;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Held across a batch write so clear() cannot interleave with one
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    private final ArrayDeque<Order> queue = new ArrayDeque<>();
+    private final Map<String, Order> pending = new ConcurrentHashMap<>();
+    private OrderJournal journal;
+    // Leading queue entries that came from replay and may already be in the database
+    private int replayed;
+    private volatile boolean running;
+    private volatile Consumer<Order> rejectionHandler = order -> { };
+    private Thread drainer;
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path path = Path.of(journalPath);
+        // A leftover journal is always replayed, even if async acceptance has since been switched off
+        if (!enabled && !Files.exists(path)) {
+            return;
+        }
+        journal = OrderJournal.open(path, capacity);
+        for (Order order : journal.uncommitted()) {
+            queue.add(order);
+            pending.put(order.getId(), order);
+        }
+        replayed = queue.size();
+        if (replayed > 0) {
+            System.out.println("Replaying " + replayed + " journaled orders from " + path.toAbsolutePath());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (journal == null) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drainLoop, "order-journal-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        if (journal == null) {
+            return;
+        }
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        lock.lock();
+        try {
+            journal.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled && journal != null;
+    }
+
+    /** Journals order for the background writer; false if the journal is full and the caller should save directly. */
+    public boolean append(Order order) {
+        lock.lock();
+        try {
+            if (!journal.append(order)) {
+                return false;
+            }
+            if (forceEachAppend) {
+                journal.force();
+            }
+            queue.add(order);
+            pending.put(order.getId(), order);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Called with each journaled order the database refuses, after it has been dropped from the journal. */
+    public void setRejectionHandler(Consumer<Order> handler) {
+        this.rejectionHandler = handler;
+    }
+
+    /** The accepted-but-uncommitted order with this id, or null. */
+    public Order findPending(String id) {
+        return pending.get(id);
+    }
+
+    /** Discards every journaled order (used when all data is wiped). */
+    public void clear() {
+        if (journal == null) {
+            return;
+        }
+        drainLock.lock();
+        lock.lock();
+        try {
+            journal.reset();
+            queue.clear();
+            pending.clear();
+            replayed = 0;
+        } finally {
+            lock.unlock();
+            drainLock.unlock();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                awaitBatch();
+                drainLock.lock();
+                try {
+                    drainOnce();
+                } finally {
+                    drainLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Failed to write journaled orders, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void awaitBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+            long remaining = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+            while (queue.size() < batchSize && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drainOnce() {
+        List<Order> batch;
+        int fromReplay;
+        lock.lock();
+        try {
+            batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+            Iterator<Order> it = queue.iterator();
+            while (batch.size() < batchSize && it.hasNext()) {
+                batch.add(it.next());
+            }
+            fromReplay = Math.min(replayed, batch.size());
+        } finally {
+            lock.unlock();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Set<String> existing = new HashSet<>();
+        if (fromReplay > 0) {
+            List<String> ids = batch.subList(0, fromReplay).stream().map(Order::getId).toList();
+            orderRepository.findAllById(ids).forEach(o -> existing.add(o.getId()));
+        }
+        List<Order> toSave = existing.isEmpty() ? batch
+                : batch.stream().filter(o -> !existing.contains(o.getId())).toList();
+        try {
+            orderWriter.saveAll(toSave);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to write " + toSave.size() + " journaled orders as a batch, saving one at a time: "
+                    + e.getMessage());
+            saveEach(batch, existing);
+            return;
+        }
+        commit(batch.size());
+    }
+
+    /**
+     * Saves batch row by row, dropping the rows the database rejects. Any other failure (the database
+     * being unreachable, say) commits the rows handled so far and is rethrown, so the rest are retried.
+     */
+    private void saveEach(List<Order> batch, Set<String> existing) {
+        // Handed over only once dropped from the journal, so a crash cannot release their stock twice
+        List<Order> rejected = new ArrayList<>();
+        int handled = 0;
+        try {
+            for (; handled < batch.size(); handled++) {
+                Order order = batch.get(handled);
+                if (existing.contains(order.getId())) {
+                    continue;
+                }
+                try {
+                    orderWriter.save(order);
+                } catch (DataIntegrityViolationException e) {
+                    System.err.println("Dropping journaled order " + order.getId() + " (user " + order.getUser_id()
+                            + ", product " + order.getProduct_id() + ", quantity " + order.getQuantity()
+                            + "): " + e.getMostSpecificCause().getMessage());
+                    rejected.add(order);
+                }
+            }
+        } finally {
+            commit(handled);
+            rejected.forEach(rejectionHandler);
+        }
+    }
+
+    /** Marks the first count queued orders as handled, in the journal and in memory. */
+    private void commit(int count) {
+        if (count == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            journal.commit(count);
+            for (int i = 0; i < count; i++) {
+                pending.remove(queue.poll().getId());
+            }
+            replayed -= Math.min(replayed, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
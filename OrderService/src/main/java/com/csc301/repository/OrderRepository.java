@@ -2,13 +2,21 @@ package com.csc301.repository;
 
 import com.csc301.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
     @Query("SELECT o FROM Order o WHERE o.user_id = :userId")
     List<Order> findByUser_id(@Param("userId") int userId);
+
+    // Empties both order tables in constant time, however many rows they hold
+    @Transactional
+    @Modifying
+    @Query(value = "TRUNCATE TABLE \"order\", user_purchase", nativeQuery = true)
+    void truncateWithPurchases();
 }
@@ -0,0 +1,68 @@
+package com.csc301.repository;
+
+import com.csc301.model.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The single write path for orders: inserts them and upserts their user_purchase totals in one
+ * transaction, then drops the affected users from the {@link PurchaseCache} once it has committed.
+ */
+@Component
+public class OrderWriter {
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserPurchaseRepository purchaseRepository;
+
+    @Autowired
+    private PurchaseCache purchaseCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public void save(Order order) {
+        saveAll(List.of(order));
+    }
+
+    public void saveAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        // Summed per (user, product) and applied in key order so concurrent batches lock rows in the same order
+        Map<Long, Long> totals = new TreeMap<>();
+        for (Order order : orders) {
+            long key = ((long) order.getUser_id() << 32) | (order.getProduct_id() & 0xFFFFFFFFL);
+            totals.merge(key, (long) order.getQuantity(), Long::sum);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.saveAll(orders);
+            for (Map.Entry<Long, Long> total : totals.entrySet()) {
+                purchaseRepository.addPurchase((int) (total.getKey() >> 32), total.getKey().intValue(), total.getValue());
+            }
+        });
+        purchaseCache.invalidate(orders.stream().map(Order::getUser_id).distinct().toList());
+    }
+
+    /** Recomputes every user_purchase row from the order table; returns the number of rows written. */
+    public int rebuildPurchases() {
+        Integer rows = transactionTemplate.execute(status -> {
+            purchaseRepository.lockForRebuild();
+            purchaseRepository.deleteAllInBatch();
+            return purchaseRepository.insertTotalsFromOrders();
+        });
+        purchaseCache.clear();
+        return rows == null ? 0 : rows;
+    }
+
+    public void deleteAll() {
+        orderRepository.truncateWithPurchases();
+        purchaseCache.clear();
+    }
+}
@@ -0,0 +1,99 @@
+package com.csc301.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU of rendered /user/purchased responses, keyed by user id.
+ *
+ * Writes on this replica invalidate their users; writes on other replicas are only picked up when
+ * the entry expires, so the TTL bounds cross-replica staleness. A read that raced with an
+ * invalidation is not cached: callers take {@link #generation()} before querying and pass it to put.
+ */
+@Component
+public class PurchaseCache {
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Entry> entries;
+    private long generation;
+
+    public PurchaseCache(@Value("${order.purchase-cache.max-users:10000}") int maxUsers,
+                         @Value("${order.purchase-cache.ttl-ms:1000}") long ttlMs) {
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The cached body for userId, or null if absent or expired. */
+    public String get(int userId) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.loadedAt > ttlNanos) {
+                entries.remove(userId);
+                return null;
+            }
+            return entry.body;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(int userId, String body, long generationAtRead) {
+        if (ttlNanos <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (generation == generationAtRead) {
+                entries.put(userId, new Entry(body, System.nanoTime()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(Iterable<Integer> userIds) {
+        lock.lock();
+        try {
+            for (int userId : userIds) {
+                entries.remove(userId);
+            }
+            generation++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            generation++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry(String body, long loadedAt) {}
+}
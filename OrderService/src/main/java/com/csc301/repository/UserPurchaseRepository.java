@@ -0,0 +1,36 @@
+package com.csc301.repository;
+
+import com.csc301.model.UserPurchase;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+
+@Repository
+public interface UserPurchaseRepository extends JpaRepository<UserPurchase, UserPurchase.Key> {
+    @Query("SELECT p FROM UserPurchase p WHERE p.user_id = :userId ORDER BY p.product_id")
+    List<UserPurchase> findByUser_id(@Param("userId") int userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_purchase (user_id, product_id, total_quantity) VALUES (:userId, :productId, :quantity) " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE SET total_quantity = user_purchase.total_quantity + EXCLUDED.total_quantity",
+            nativeQuery = true)
+    int addPurchase(@Param("userId") int userId, @Param("productId") int productId, @Param("quantity") long quantity);
+
+    // Blocks concurrent upserts until the surrounding transaction ends
+    @Transactional
+    @Modifying
+    @Query(value = "LOCK TABLE user_purchase IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_purchase (user_id, product_id, total_quantity) " +
+            "SELECT user_id, product_id, SUM(quantity) FROM \"order\" GROUP BY user_id, product_id",
+            nativeQuery = true)
+    int insertTotalsFromOrders();
+}
@@ -0,0 +1,14 @@
+package com.csc301.util;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * A response body that writes itself token by token, so nothing is built up before it reaches the
+ * socket. Returned from controllers and written by {@link com.csc301.config.JsonBodyConverter}.
+ */
+@FunctionalInterface
+public interface JsonBody {
+    void writeTo(JsonWriter out) throws IOException;
+}
@@ -0,0 +1,183 @@
+package com.csc301.util;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.io.UncheckedIOException;
+
+/**
+ * Streaming JSON helpers shared by the command records and response bodies.
+ *
+ * Reading accepts what JsonParser.parseString accepted (lenient syntax, last duplicate key wins,
+ * nothing after the top-level object); writing produces what JsonObject.toString produced.
+ */
+public final class JsonCodec {
+    /** Where an encoded body goes; opened once, told the length when the whole body fit in one buffer. */
+    @FunctionalInterface
+    public interface Sink {
+        OutputStream open(int contentLength) throws IOException;
+    }
+
+    private JsonCodec() {
+    }
+
+    /** Opens body and steps into its top-level object; fails unless body is a JSON object. */
+    public static JsonReader beginObject(String body) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(body));
+        in.setLenient(true);
+        beginObject(in);
+        return in;
+    }
+
+    public static void beginObject(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IllegalStateException("Not a JSON Object: " + in.peek());
+        }
+        in.beginObject();
+    }
+
+    /** Leaves the top-level object opened by {@link #beginObject(String)} and rejects trailing input. */
+    public static void endDocument(JsonReader in) throws IOException {
+        in.endObject();
+        if (in.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Did not consume the entire document.");
+        }
+    }
+
+    /** Writes body as UTF-8 to out, without flushing or closing out. */
+    public static void write(JsonBody body, OutputStream out) throws IOException {
+        write(body, contentLength -> out);
+    }
+
+    /**
+     * Writes body as UTF-8 to the stream sink opens. Bodies up to one buffer long are opened with
+     * their length; longer ones are opened with -1 once the buffer first fills, and streamed.
+     */
+    public static void write(JsonBody body, Sink sink) throws IOException {
+        Utf8Writer utf8 = new Utf8Writer(sink);
+        JsonWriter writer = new JsonWriter(utf8);
+        writer.setLenient(true);
+        body.writeTo(writer);
+        utf8.finish();
+    }
+
+    /** Renders body to a string, for bodies that are cached or sent on to another service. */
+    public static String toJson(JsonBody body) {
+        StringWriter out = new StringWriter(128);
+        JsonWriter writer = new JsonWriter(out);
+        writer.setLenient(true);
+        try {
+            body.writeTo(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    // Encodes straight into a small buffer drained to the servlet stream; no intermediate String or byte[]
+    private static final class Utf8Writer extends Writer {
+        private final Sink sink;
+        private final byte[] buffer = new byte[512];
+        private OutputStream out;
+        private int count;
+        private char highSurrogate;
+
+        Utf8Writer(Sink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            put((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                put(chars[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                put(str.charAt(i));
+            }
+        }
+
+        private void put(char c) throws IOException {
+            if (count > buffer.length - 4) {
+                if (out == null) {
+                    out = sink.open(-1);
+                }
+                drain();
+            }
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int cp = Character.toCodePoint(high, c);
+                    buffer[count++] = (byte) (0xF0 | (cp >> 18));
+                    buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+                    return;
+                }
+                buffer[count++] = '?';
+                put(c);
+                return;
+            }
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        // Like String.getBytes, a dangling high surrogate at the very end is written as '?'
+        void finish() throws IOException {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                buffer[count++] = '?';
+            }
+            if (out == null) {
+                out = sink.open(count);
+            }
+            drain();
+        }
+
+        void drain() throws IOException {
+            if (out != null && count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        // The servlet container decides when to flush; JsonWriter.flush only hands over what is buffered
+        @Override
+        public void flush() throws IOException {
+            drain();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+    }
+}
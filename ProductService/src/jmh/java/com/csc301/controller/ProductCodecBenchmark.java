@@ -0,0 +1,88 @@
+package com.csc301.controller;
+
+import com.csc301.model.Product;
+import com.csc301.util.JsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductController's request decoding and response encoding, without the repository or Tomcat:
+ * decode-and-validate a create body, render a product as a cached String and straight to the
+ * response stream, and write the /reserve answer.
+ * Run with -Djmh.args="ProductCodecBenchmark -prof gc" to see bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductCodecBenchmark {
+    private String createBody;
+    private Product product;
+
+    @Setup
+    public void buildBodies() {
+        createBody = "{\"command\": \"create\", \"id\": 2002, \"name\": \"product2002\","
+                + " \"description\": \"a product for benchmarking\", \"price\": 19.99, \"quantity\": 250}";
+        product = new Product(2002, "product2002", 19.99f, 250);
+        product.setDescription("a product for benchmarking");
+    }
+
+    @Benchmark
+    public ProductCommand decodeCreate() {
+        ProductCommand json = ProductCommand.decode(createBody);
+        if (!"create".equals(json.command().asString()) || json.id().asIntStrict() != 2002
+                || json.name().asString().isEmpty() || json.description().asString().isEmpty()
+                || json.price().asDouble() < 0 || json.quantity().asIntStrict() < 0) {
+            throw new IllegalStateException();
+        }
+        return json;
+    }
+
+    @Benchmark
+    public String renderProduct() {
+        return JsonCodec.toJson(ProductController.productBody(product));
+    }
+
+    @Benchmark
+    public CountingStream writeProduct() throws IOException {
+        CountingStream out = new CountingStream();
+        JsonCodec.write(ProductController.productBody(product), out);
+        return out;
+    }
+
+    @Benchmark
+    public CountingStream writeStock() throws IOException {
+        CountingStream out = new CountingStream();
+        JsonCodec.write(ProductController.stockBody(2002, 249), out);
+        return out;
+    }
+
+    // Stands in for the servlet stream, which the container owns and reuses across requests
+    public static class CountingStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.csc301.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many threads reserving one unit at a time from the same product, without Postgres: a lock around
+ * one count (what the product row amounts to), a single CAS'd count, and HotStock's StripedCounter.
+ * Every counter is refilled by REFILL when it runs dry, as HotStock leases more, so the benchmark
+ * never runs out. Run with -Djmh.args="StockContentionBenchmark"; add -t to vary the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class StockContentionBenchmark {
+    private static final long REFILL = 1_000_000;
+
+    // 0 means one per CPU, as hot-stock.stripes
+    @Param({"0"})
+    public int stripes;
+
+    private final Object lock = new Object();
+    private long locked;
+    private final AtomicLong atomic = new AtomicLong();
+    private StripedCounter striped;
+
+    @Setup
+    public void createCounters() {
+        striped = new StripedCounter(stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public long lockedCount() {
+        synchronized (lock) {
+            if (locked == 0) {
+                locked = REFILL;
+            }
+            return --locked;
+        }
+    }
+
+    @Benchmark
+    public long atomicCount() {
+        while (true) {
+            long value = atomic.get();
+            if (value == 0) {
+                atomic.compareAndSet(0, REFILL);
+            } else if (atomic.compareAndSet(value, value - 1)) {
+                return value - 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean stripedCount() {
+        if (striped.tryTake(1)) {
+            return true;
+        }
+        // HotStock's slow path: even out the stripes under the lock, refilling if that is not enough
+        synchronized (lock) {
+            long pool = striped.drain();
+            if (pool < 1) {
+                pool += REFILL;
+            }
+            striped.distribute(pool - 1);
+            return true;
+        }
+    }
+}
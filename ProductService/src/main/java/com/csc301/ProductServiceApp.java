@@ -31,6 +31,9 @@ public class ProductServiceApp {
             app.setDefaultProperties(properties);
             app.run(args);
             System.out.println("Product Service started.");
+        } catch (SpringApplication.AbandonedRunException e) {
+            // Spring AOT processing stops the run on purpose once it has the bean definitions
+            throw e;
         } catch (Exception e) {
             System.err.println("Failed to start Product Service: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,24 @@
+package com.csc301.config;
+
+import com.csc301.model.Product;
+import com.csc301.repository.BulkInserter;
+import com.csc301.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class BulkInsertConfig {
+
+    @Bean
+    public BulkInserter<Product> productInserter(ProductRepository productRepository,
+                                                 TransactionTemplate transactionTemplate,
+                                                 @Value("${bulk.batch-size:1000}") int batchSize) {
+        return new BulkInserter<>(productRepository, transactionTemplate, batchSize, product -> {
+            Product copy = new Product(product.getId(), product.getProductname(), product.getPrice(), product.getQuantity());
+            copy.setDescription(product.getDescription());
+            return copy;
+        });
+    }
+}
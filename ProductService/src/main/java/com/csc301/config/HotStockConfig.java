@@ -0,0 +1,43 @@
+package com.csc301.config;
+
+import com.csc301.repository.HotStock;
+import com.csc301.repository.StockLeaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Configuration
+public class HotStockConfig {
+
+    @Bean(destroyMethod = "stop")
+    public HotStock hotStock(StockLeaseRepository stockLeaseRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${hot-stock.enabled:false}") boolean enabled,
+                             @Value("${hot-stock.replica-id:}") String replicaId,
+                             @Value("${server.port:15000}") int port,
+                             @Value("${hot-stock.products:}") String products,
+                             @Value("${hot-stock.detect-rate:0}") double detectRate,
+                             @Value("${hot-stock.stripes:0}") int stripes,
+                             @Value("${hot-stock.lease-size:100}") int leaseSize,
+                             @Value("${hot-stock.flush-ms:100}") long flushMs,
+                             @Value("${hot-stock.cool-down-ms:5000}") long coolDownMs,
+                             @Value("${hot-stock.orphan-ms:30000}") long orphanMs) throws Exception {
+        // Must outlive a restart of the same replica, so it can take back what it left leased; the port
+        // tells apart replicas that share a host
+        String host = replicaId.isEmpty() ? InetAddress.getLocalHost().getHostName() : replicaId;
+        String replica = host + ":" + port;
+        Set<Integer> hotIds = Arrays.stream(products.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(Integer::valueOf)
+                .collect(Collectors.toSet());
+        return new HotStock(stockLeaseRepository, transactionTemplate, enabled, replica, hotIds, detectRate,
+                stripes, leaseSize, flushMs, coolDownMs, orphanMs);
+    }
+}
@@ -0,0 +1,18 @@
+package com.csc301.config;
+
+import com.csc301.repository.ProductRepository;
+import com.csc301.repository.IdBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdBitmapConfig {
+
+    @Bean(destroyMethod = "stop")
+    public IdBitmap productIds(ProductRepository productRepository,
+                               @Value("${id-bitmap.enabled:false}") boolean enabled,
+                               @Value("${id-bitmap.refresh-ms:0}") long refreshMs) {
+        return new IdBitmap(productRepository::findAllIds, enabled, refreshMs);
+    }
+}
@@ -0,0 +1,59 @@
+package com.csc301.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every repository method. Each Spring Data repository factory gets an extra advice on the
+ * proxy it builds, so derived queries, @Query methods and the inherited CRUD methods all report
+ * under repository_duration_seconds{repository, method}. The time also counts towards the "db"
+ * phase of the current {@link RequestTrace}.
+ */
+@Configuration
+public class RepositoryMetricsConfig {
+
+    // Static so the post-processor is registered before, and without initializing, the repositories it advises
+    @Bean
+    public static BeanPostProcessor repositoryMetrics(ObjectProvider<LatencyMetrics> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, information) ->
+                                    proxy.addAdvice(timing(metrics.getObject(),
+                                            information.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MethodInterceptor timing(LatencyMetrics metrics, String repository) {
+        ConcurrentHashMap<Method, LatencyMetrics.Timer> timers = new ConcurrentHashMap<>();
+        return invocation -> {
+            Method method = invocation.getMethod();
+            LatencyMetrics.Timer timer = timers.get(method);
+            if (timer == null) {
+                timer = timers.computeIfAbsent(method, m ->
+                        metrics.timer(LatencyMetrics.Family.REPOSITORY, repository, m.getName()));
+            }
+            long start = timer.start();
+            try {
+                Object result = invocation.proceed();
+                RequestTrace.addToCurrent("db", timer.stop(start, 200));
+                return result;
+            } catch (Throwable e) {
+                RequestTrace.addToCurrent("db", timer.stop(start, LatencyMetrics.FAILED));
+                throw e;
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.csc301.controller;
+
+import com.csc301.repository.HotStock;
+import com.csc301.repository.IdBitmap;
+import com.csc301.repository.JsonBodyCache;
+import com.google.gson.JsonObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class CacheController {
+    @Autowired
+    private JsonBodyCache cache;
+
+    @Autowired
+    private IdBitmap productIds;
+
+    @Autowired
+    private HotStock hotStock;
+
+    // Hit/miss/eviction counters for this replica's GET cache, plus the id bitmap's size
+    @GetMapping("/cache")
+    public ResponseEntity<?> stats() {
+        JsonObject stats = cache.stats();
+        stats.add("idBitmap", productIds.stats());
+        return ResponseEntity.ok(stats.toString());
+    }
+
+    // Hot products this replica sells from memory, with what it holds and the stock outside it
+    @GetMapping("/hotstock")
+    public ResponseEntity<?> hotStock() {
+        return ResponseEntity.ok(hotStock.stats().toString());
+    }
+}
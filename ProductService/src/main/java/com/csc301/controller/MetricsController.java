@@ -0,0 +1,22 @@
+package com.csc301.controller;
+
+import com.csc301.config.LatencyMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MetricsController {
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+
+    @Autowired
+    private LatencyMetrics metrics;
+
+    // Latency quantiles, error counts and in-flight gauges for this replica, in Prometheus text format
+    @GetMapping("/metrics")
+    public ResponseEntity<?> scrape() {
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metrics.scrape());
+    }
+}
@@ -0,0 +1,48 @@
+package com.csc301.controller;
+
+import com.csc301.model.Product;
+
+/**
+ * A product create body checked against the create rules: either the product to insert, or the
+ * status and error a create answers with. Shared by the create and bulk commands and the seed loader.
+ */
+public record NewProduct(Integer id, Product product, int status, String error) {
+
+    public static NewProduct rejected(Integer id, int status, String error) {
+        return new NewProduct(id, null, status, error);
+    }
+
+    /** Checks every rule except whether the id is already taken. */
+    public static NewProduct check(ProductCommand json) {
+        if (json == null || json.id() == null || json.name() == null || json.description() == null || json.price() == null || json.quantity() == null) {
+            return rejected(null, 400, "Missing required fields");
+        }
+
+        Integer id = null;
+        try {
+            id = json.id().asIntStrict();
+            String name = json.name().asString();
+            String description = json.description().asString();
+            float price = (float) json.price().asDouble();
+            int quantity = json.quantity().asIntStrict();
+
+            if (name == null || name.isEmpty()) {
+                return rejected(id, 400, "Product name cannot be empty");
+            }
+
+            if (description == null || description.isEmpty()) {
+                return rejected(id, 400, "Product description cannot be empty");
+            }
+
+            if (price < 0 || quantity < 0) {
+                return rejected(id, 400, "Invalid field values");
+            }
+
+            Product product = new Product(id, name, price, quantity);
+            product.setDescription(description);
+            return new NewProduct(id, product, 200, null);
+        } catch (RuntimeException e) {
+            return rejected(id, 400, "Invalid field types");
+        }
+    }
+}
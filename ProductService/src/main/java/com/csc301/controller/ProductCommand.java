@@ -0,0 +1,83 @@
+package com.csc301.controller;
+
+import com.csc301.util.JsonCodec;
+import com.csc301.util.JsonField;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A POST /product body decoded in one streaming pass; a field is null when the body did not contain it. */
+public record ProductCommand(JsonField command, JsonField id, JsonField name, JsonField description,
+                             JsonField price, JsonField quantity, JsonField version) {
+
+    public static ProductCommand decode(String body) {
+        try {
+            JsonReader in = JsonCodec.beginObject(body);
+            ProductCommand command = readMembers(in);
+            JsonCodec.endDocument(in);
+            return command;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Decodes a POST /product/bulk body, {"products": [...]}, into its elements, with null for any
+     * element that is not an object. Null if "products" is missing or not an array.
+     */
+    public static List<ProductCommand> decodeBulk(String body) {
+        try {
+            JsonReader in = JsonCodec.beginObject(body);
+            List<ProductCommand> products = null;
+            while (in.hasNext()) {
+                if (in.nextName().equals("products") && in.peek() == JsonToken.BEGIN_ARRAY) {
+                    products = readItems(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            JsonCodec.endDocument(in);
+            return products;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static ProductCommand readMembers(JsonReader in) throws IOException {
+        JsonField command = null, id = null, name = null, description = null, price = null, quantity = null, version = null;
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "command" -> command = JsonField.read(in);
+                case "id" -> id = JsonField.read(in);
+                case "name" -> name = JsonField.read(in);
+                case "description" -> description = JsonField.read(in);
+                case "price" -> price = JsonField.read(in);
+                case "quantity" -> quantity = JsonField.read(in);
+                case "version" -> version = JsonField.read(in);
+                default -> in.skipValue();
+            }
+        }
+        return new ProductCommand(command, id, name, description, price, quantity, version);
+    }
+
+    private static List<ProductCommand> readItems(JsonReader in) throws IOException {
+        List<ProductCommand> items = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                items.add(readMembers(in));
+                in.endObject();
+            } else {
+                in.skipValue();
+                items.add(null);
+            }
+        }
+        in.endArray();
+        return items;
+    }
+}
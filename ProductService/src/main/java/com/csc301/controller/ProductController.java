@@ -1,14 +1,40 @@
 package com.csc301.controller;
 
+import com.csc301.config.LatencyMetrics;
+import com.csc301.config.RequestBulkhead;
+import com.csc301.config.RequestTrace;
+import com.csc301.loader.ProductLoader;
 import com.csc301.model.Product;
+import com.csc301.repository.BulkInserter;
+import com.csc301.repository.HotStock;
+import com.csc301.repository.IdBitmap;
+import com.csc301.repository.JsonBodyCache;
 import com.csc301.repository.ProductRepository;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.csc301.util.JsonBody;
+import com.csc301.util.JsonCodec;
+import com.csc301.util.JsonField;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 @RestController
 @RequestMapping("/product")
@@ -19,163 +45,419 @@ public class ProductController {
     @Autowired
     private ConfigurableApplicationContext applicationContext;
 
+    @Autowired
+    private RequestBulkhead bulkhead;
+
+    @Autowired
+    private JsonBodyCache productCache;
+
+    @Autowired
+    private IdBitmap productIds;
+
+    @Autowired
+    private HotStock hotStock;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LatencyMetrics metrics;
+
+    @Autowired
+    private BulkInserter<Product> productInserter;
+
+    @Value("${bulk.max-size:100000}")
+    private int bulkMaxSize;
+
+    @Autowired
+    private ProductLoader productLoader;
+
+    @Value("${loader.timeout-ms:3600000}")
+    private long loadTimeoutMs;
+
+    @Value("${update.max-attempts:5}")
+    private int updateMaxAttempts;
+
     @PostMapping
-    public ResponseEntity<?> handleProductRequest(@RequestBody String body) {
+    public WebAsyncTask<ResponseEntity<?>> handleProductRequest(@RequestBody String body,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestHeader(value = RequestTrace.ID_HEADER, required = false) String requestId) {
+        RequestTrace trace = RequestTrace.begin(requestId);
+        return bulkhead.write(() -> trace.run(() -> dispatchCommand(body, ifMatch)));
+    }
+
+    @GetMapping("/{id}")
+    public WebAsyncTask<ResponseEntity<?>> getProduct(@PathVariable int id,
+                                                      @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+                                                      @RequestHeader(value = RequestTrace.ID_HEADER, required = false) String requestId) {
+        RequestTrace trace = RequestTrace.begin(requestId);
+        return bulkhead.read(() -> trace.run(() -> {
+            LatencyMetrics.Timer timer = metrics.request("get");
+            long start = timer.start();
+            return timer.stop(start, findProduct(id, ifNoneMatch));
+        }));
+    }
+
+    // Creates many products in one request; runs on the admin bulkhead so a large load does not hold write threads
+    @PostMapping("/bulk")
+    public WebAsyncTask<ResponseEntity<?>> handleBulkCreate(@RequestBody String body,
+            @RequestHeader(value = RequestTrace.ID_HEADER, required = false) String requestId) {
+        RequestTrace trace = RequestTrace.begin(requestId);
+        return bulkhead.admin(() -> trace.run(() -> {
+            LatencyMetrics.Timer timer = metrics.request("bulk");
+            long start = timer.start();
+            return timer.stop(start, createProducts(body));
+        }));
+    }
+
+    // Seeds products from a workload or NDJSON file sent as the request body, streamed into Postgres with COPY
+    @PostMapping("/load")
+    public WebAsyncTask<ResponseEntity<?>> handleLoad(HttpServletRequest request) {
+        return bulkhead.admin(() -> {
+            LatencyMetrics.Timer timer = metrics.request("load");
+            long start = timer.start();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+                return timer.stop(start, ResponseEntity.ok(productLoader.load(in).toJson()));
+            } catch (Exception e) {
+                System.err.println("Failed to load products: " + e.getMessage());
+                return timer.stop(start, ResponseEntity.status(500).body("{\"error\": \"Failed to load products\"}"));
+            }
+        }, loadTimeoutMs);
+    }
+
+    private ResponseEntity<?> dispatchCommand(String body, String ifMatch) {
         try {
-            JsonObject json = JsonParser.parseString(body).getAsJsonObject();
-            String command = json.has("command") ? json.get("command").getAsString() : null;
+            ProductCommand json = ProductCommand.decode(body);
+            String command = json.command() != null ? json.command().asString() : null;
 
             if (command == null || command.isEmpty()) {
                 return ResponseEntity.status(400).body("{\"error\": \"Missing command field\"}");
             }
 
-            switch (command.toLowerCase()) {
+            String name = command.toLowerCase();
+            switch (name) {
                 case "create":
-                    return createProduct(json);
                 case "update":
-                    return updateProduct(json);
                 case "delete":
-                    return deleteProduct(json);
+                case "reserve":
+                case "release":
+                    break;
                 default:
                     return ResponseEntity.status(400).body("{\"error\": \"Invalid command\"}");
             }
+
+            LatencyMetrics.Timer timer = metrics.request(name);
+            long start = timer.start();
+            switch (name) {
+                case "create":
+                    return timer.stop(start, createProduct(json));
+                case "update":
+                    return timer.stop(start, updateProduct(json, ifMatch));
+                case "delete":
+                    return timer.stop(start, deleteProduct(json));
+                case "reserve":
+                    return timer.stop(start, reserveProduct(json));
+                default:
+                    return timer.stop(start, releaseProduct(json));
+            }
         } catch (Exception e) {
             return ResponseEntity.status(400).body("{\"error\": \"Invalid JSON request\"}");
         }
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<?> getProduct(@PathVariable int id) {
+    private ResponseEntity<?> findProduct(int id, String ifNoneMatch) {
+        // Not short-circuited by the id bitmap: a miss there may be an id another replica created
+        JsonBodyCache.Entry cached = productCache.get(id, this::renderProduct);
+        if (cached == null) {
+            return ResponseEntity.status(404).body("{\"error\": \"Product not found\"}");
+        }
+        if (cached.matches(ifNoneMatch)) {
+            return ResponseEntity.status(304).eTag(cached.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(cached.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cached.body());
+    }
+
+    // GET body for id, or null if it does not exist; only called on a cache miss
+    private String renderProduct(int id) {
         Optional<Product> product = productRepository.findById(id);
         if (!product.isPresent()) {
-            return ResponseEntity.status(404).body("{\"error\": \"Product not found\"}");
+            return null;
         }
 
-        Product p = product.get();
-        JsonObject response = new JsonObject();
-        response.addProperty("id", p.getId());
-        response.addProperty("name", p.getProductname());
-        response.addProperty("description", p.getDescription());
-        response.addProperty("price", p.getPrice());
-        response.addProperty("quantity", p.getQuantity());
-        return ResponseEntity.ok(response.toString());
+        // Hot products keep part of their stock in leases, so the column alone is not what is left
+        Optional<Long> quantity = hotStock.available(id, product.get().getQuantity());
+        return quantity.isPresent() ? JsonCodec.toJson(productBody(product.get(), quantity.get())) : null;
     }
 
-    private ResponseEntity<?> createProduct(JsonObject json) {
-        if (!json.has("id") || !json.has("name") || !json.has("description") || !json.has("price") || !json.has("quantity")) {
-            return ResponseEntity.status(400).body("{\"error\": \"Missing required fields\"}");
+    static JsonBody productBody(Product product) {
+        return productBody(product, product.getQuantity());
+    }
+
+    static JsonBody productBody(Product product, long quantity) {
+        int id = product.getId();
+        String name = product.getProductname();
+        String description = product.getDescription();
+        float price = product.getPrice();
+        long version = product.getVersion();
+        return out -> out.beginObject()
+                .name("id").value(id)
+                .name("name").value(name)
+                .name("description").value(description)
+                .name("price").value(price)
+                .name("quantity").value(quantity)
+                .name("version").value(version)
+                .endObject();
+    }
+
+    private ResponseEntity<?> createProduct(ProductCommand json) {
+        NewProduct checked = NewProduct.check(json);
+        if (checked.error() != null) {
+            return ResponseEntity.status(checked.status()).body("{\"error\": \"" + checked.error() + "\"}");
         }
 
         try {
-            int id = parseIntStrict(json, "id");
-            String name = json.get("name").getAsString();
-            String description = json.get("description").getAsString();
-            float price = (float) json.get("price").getAsDouble();
-            int quantity = parseIntStrict(json, "quantity");
-
-            if (name == null || name.isEmpty()) {
-                return ResponseEntity.status(400).body("{\"error\": \"Product name cannot be empty\"}");
+            int id = checked.id();
+            // A bitmap miss skips the query; an id created on another replica still fails the insert
+            if (productIds.mightContain(id) && productRepository.existsById(id)) {
+                return ResponseEntity.status(409).body("{\"error\": \"Product already exists\"}");
             }
 
-            if (description == null || description.isEmpty()) {
-                return ResponseEntity.status(400).body("{\"error\": \"Product description cannot be empty\"}");
+            Product product = checked.product();
+            try {
+                productRepository.save(product);
+            } catch (DataIntegrityViolationException e) {
+                if (productRepository.existsById(id)) {
+                    return ResponseEntity.status(409).body("{\"error\": \"Product already exists\"}");
+                }
+                throw e;
             }
+            productIds.add(id);
+            productCache.invalidate(id);
 
-            if (price < 0 || quantity < 0) {
-                return ResponseEntity.status(400).body("{\"error\": \"Invalid field values\"}");
+            return ResponseEntity.ok(productBody(product));
+        } catch (Exception e) {
+            return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
+        }
+    }
+
+    /**
+     * Creates every valid product in a {"products": [...]} body. Ids that are taken, or repeated
+     * earlier in the body, are found with one query rather than a lookup per item, and the rest are
+     * inserted in batches. Each item reports the status a single create would get.
+     */
+    private ResponseEntity<?> createProducts(String body) {
+        List<ProductCommand> items;
+        try {
+            items = ProductCommand.decodeBulk(body);
+        } catch (Exception e) {
+            return ResponseEntity.status(400).body("{\"error\": \"Invalid JSON request\"}");
+        }
+        if (items == null) {
+            return ResponseEntity.status(400).body("{\"error\": \"Missing products array\"}");
+        }
+        if (items.size() > bulkMaxSize) {
+            return ResponseEntity.status(400).body("{\"error\": \"Too many products\"}");
+        }
+
+        NewProduct[] results = new NewProduct[items.size()];
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            results[i] = NewProduct.check(items.get(i));
+            if (results[i].error() == null) {
+                ids.add(results[i].id());
             }
+        }
 
-            if (productRepository.existsById(id)) {
-                return ResponseEntity.status(409).body("{\"error\": \"Product already exists\"}");
+        try {
+            // Only ids in the bitmap are queried; the rest are new unless another replica created them,
+            // which the insert's duplicate-key error reports as 409 below
+            Integer[] maybeTaken = ids.stream().filter(productIds::mightContain).toArray(Integer[]::new);
+            Set<Integer> takenIds = maybeTaken.length == 0
+                    ? Set.of() : new HashSet<>(productRepository.findExistingIds(maybeTaken));
+
+            Set<Integer> seenIds = new HashSet<>();
+            List<Product> products = new ArrayList<>(ids.size());
+            List<Integer> rows = new ArrayList<>(ids.size());
+            for (int i = 0; i < results.length; i++) {
+                NewProduct item = results[i];
+                if (item.error() != null) {
+                    continue;
+                }
+                int id = item.id();
+                if (takenIds.contains(id) || !seenIds.add(id)) {
+                    results[i] = NewProduct.rejected(id, 409, "Product already exists");
+                    continue;
+                }
+                products.add(item.product());
+                rows.add(i);
             }
 
-            Product product = new Product(id, name, price, quantity);
-            product.setDescription(description);
-            productRepository.save(product);
+            RuntimeException[] errors = productInserter.insertAll(products);
+            int[] created = new int[products.size()];
+            int count = 0;
+            for (int p = 0; p < errors.length; p++) {
+                int id = products.get(p).getId();
+                if (errors[p] == null) {
+                    created[count++] = id;
+                } else if (errors[p] instanceof DataIntegrityViolationException) {
+                    results[rows.get(p)] = NewProduct.rejected(id, 409, "Product already exists");
+                } else {
+                    results[rows.get(p)] = NewProduct.rejected(id, 500, "Failed to create product");
+                }
+            }
+            productIds.addAll(Arrays.copyOf(created, count));
+            for (int i = 0; i < count; i++) {
+                productCache.invalidate(created[i]);
+            }
 
-            JsonObject response = new JsonObject();
-            response.addProperty("id", product.getId());
-            response.addProperty("name", product.getProductname());
-            response.addProperty("description", product.getDescription());
-            response.addProperty("price", product.getPrice());
-            response.addProperty("quantity", product.getQuantity());
-            return ResponseEntity.ok(response.toString());
+            int createdCount = count;
+            return ResponseEntity.ok((JsonBody) out -> {
+                out.beginObject().name("created").value(createdCount).name("results").beginArray();
+                for (NewProduct item : results) {
+                    out.beginObject();
+                    if (item.id() != null) {
+                        out.name("id").value(item.id());
+                    }
+                    out.name("status").value(item.status());
+                    if (item.error() != null) {
+                        out.name("error").value(item.error());
+                    }
+                    out.endObject();
+                }
+                out.endArray().endObject();
+            });
         } catch (Exception e) {
-            return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
+            return ResponseEntity.status(500).body("{\"error\": \"Failed to create products\"}");
         }
     }
 
-    private ResponseEntity<?> updateProduct(JsonObject json) {
-        if (!json.has("id")) {
+    /**
+     * Applies the fields given in one transaction, whose UPDATE only applies if the row still has the
+     * version it was read at (reserves and releases bump it too). On a conflict the row is read again
+     * and the same fields applied, up to update.max-attempts times. A version in the body or If-Match
+     * makes it a compare-and-set instead: 412 if the row has moved on.
+     */
+    private ResponseEntity<?> updateProduct(ProductCommand json, String ifMatch) {
+        if (json.id() == null) {
             return ResponseEntity.status(400).body("{\"error\": \"Missing id field\"}");
         }
 
         try {
-            int id = parseIntStrict(json, "id");
-            Optional<Product> productOpt = productRepository.findById(id);
+            int id = json.id().asIntStrict();
+            Long expectedVersion = expectedVersion(json.version(), ifMatch);
 
-            if (!productOpt.isPresent()) {
-                return ResponseEntity.status(404).body("{\"error\": \"Product not found\"}");
+            String name = json.name() != null ? json.name().asString() : null;
+            if (name != null && name.isEmpty()) {
+                return ResponseEntity.status(400).body("{\"error\": \"Product name cannot be empty\"}");
             }
-
-            Product product = productOpt.get();
-
-            if (json.has("name")) {
-                String name = json.get("name").getAsString();
-                if (name.isEmpty()) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Product name cannot be empty\"}");
-                }
-                product.setProductname(name);
+            String description = json.description() != null ? json.description().asString() : null;
+            if (description != null && description.isEmpty()) {
+                return ResponseEntity.status(400).body("{\"error\": \"Product description cannot be empty\"}");
             }
-
-            if (json.has("description")) {
-                String description = json.get("description").getAsString();
-                if (description.isEmpty()) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Product description cannot be empty\"}");
-                }
-                product.setDescription(description);
+            Float price = json.price() != null ? (float) json.price().asDouble() : null;
+            Integer quantity = json.quantity() != null ? json.quantity().asIntStrict() : null;
+            if ((price != null && price < 0) || (quantity != null && quantity < 0)) {
+                return ResponseEntity.status(400).body("{\"error\": \"Invalid field values\"}");
             }
 
-            if (json.has("price")) {
-                float price = (float) json.get("price").getAsDouble();
-                if (price < 0) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Invalid field values\"}");
+            for (int attempt = 1; ; attempt++) {
+                Product product;
+                try {
+                    product = transactionTemplate.execute(status -> {
+                        Optional<Product> current = productRepository.findById(id);
+                        if (!current.isPresent()) {
+                            return null;
+                        }
+                        Product updated = current.get();
+                        if (expectedVersion != null && updated.getVersion() != expectedVersion) {
+                            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+                        }
+                        if (name != null) {
+                            updated.setProductname(name);
+                        }
+                        if (description != null) {
+                            updated.setDescription(description);
+                        }
+                        if (price != null) {
+                            updated.setPrice(price);
+                        }
+                        if (quantity != null) {
+                            updated.setQuantity(quantity);
+                        }
+                        // Flushed here so the response carries the version that was written
+                        productRepository.flush();
+                        return updated;
+                    });
+                } catch (OptimisticLockingFailureException e) {
+                    if (expectedVersion != null) {
+                        return ResponseEntity.status(412).body("{\"error\": \"Version mismatch\"}");
+                    }
+                    if (attempt >= updateMaxAttempts) {
+                        return ResponseEntity.status(409).body("{\"error\": \"Concurrent update, try again\"}");
+                    }
+                    // A random pause of up to 2^attempt ms, so updaters that just collided do not collide again
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(attempt, 10)));
+                    continue;
+                }
+                if (product == null) {
+                    return ResponseEntity.status(404).body("{\"error\": \"Product not found\"}");
                 }
-                product.setPrice(price);
-            }
 
-            if (json.has("quantity")) {
-                int quantity = parseIntStrict(json, "quantity");
-                if (quantity < 0) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Invalid field values\"}");
+                if (quantity != null) {
+                    // The new quantity replaces whatever replicas hold for a hot product
+                    hotStock.revoke(id);
                 }
-                product.setQuantity(quantity);
+                productIds.add(id);
+                productCache.invalidate(id);
+
+                if (quantity == null) {
+                    Optional<Long> available = hotStock.available(id, product.getQuantity());
+                    if (available.isPresent()) {
+                        return ResponseEntity.ok(productBody(product, available.get()));
+                    }
+                }
+                return ResponseEntity.ok(productBody(product));
             }
-
-            productRepository.save(product);
-
-            JsonObject response = new JsonObject();
-            response.addProperty("id", product.getId());
-            response.addProperty("name", product.getProductname());
-            response.addProperty("description", product.getDescription());
-            response.addProperty("price", product.getPrice());
-            response.addProperty("quantity", product.getQuantity());
-            return ResponseEntity.ok(response.toString());
+        } catch (InterruptedException e) {
+            // Interrupted during the retry pause, so no attempt has been applied
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(503).body("{\"error\": \"Request interrupted\"}");
         } catch (Exception e) {
             return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
         }
     }
 
-    private ResponseEntity<?> deleteProduct(JsonObject json) {
-        if (!json.has("id") || !json.has("name") || !json.has("price") || !json.has("quantity")) {
+    // The version an update must find: the body's "version", else If-Match (a bare or quoted number, or * for any)
+    static Long expectedVersion(JsonField version, String ifMatch) {
+        if (version != null) {
+            return version.asLongStrict();
+        }
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return Long.parseLong(tag);
+    }
+
+    private ResponseEntity<?> deleteProduct(ProductCommand json) {
+        if (json.id() == null || json.name() == null || json.price() == null || json.quantity() == null) {
             return ResponseEntity.status(400).body("{\"error\": \"Missing required fields\"}");
         }
 
         try {
-            int id = parseIntStrict(json, "id");
-            String name = json.get("name").getAsString();
-            float price = (float) json.get("price").getAsDouble();
-            int quantity = parseIntStrict(json, "quantity");
+            int id = json.id().asIntStrict();
+            String name = json.name().asString();
+            float price = (float) json.price().asDouble();
+            int quantity = json.quantity().asIntStrict();
 
             Optional<Product> productOpt = productRepository.findById(id);
             if (!productOpt.isPresent()) {
@@ -185,30 +467,105 @@ public class ProductController {
             Product product = productOpt.get();
             if (!product.getProductname().equals(name) ||
                 product.getPrice() != price ||
-                product.getQuantity() != quantity) {
+                hotStock.available(id, product.getQuantity()).orElse(-1L) != quantity) {
                 return ResponseEntity.status(404).body("{\"error\": \"Product details do not match\"}");
             }
 
+            hotStock.revoke(id);
             productRepository.deleteById(id);
+            productIds.remove(id);
+            productCache.invalidate(id);
             return ResponseEntity.ok("{}");
         } catch (Exception e) {
             return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
         }
     }
 
-    private int parseIntStrict(JsonObject json, String fieldName) {
-        double value = json.get(fieldName).getAsDouble();
-        if (value % 1 != 0) {
-            throw new IllegalArgumentException("Non-integer value for field: " + fieldName);
+    // Atomically takes quantity from stock; used by OrderService instead of read-then-update
+    private ResponseEntity<?> reserveProduct(ProductCommand json) {
+        if (json.id() == null || json.quantity() == null) {
+            return ResponseEntity.status(400).body("{\"error\": \"Missing required fields\"}");
+        }
+
+        try {
+            int id = json.id().asIntStrict();
+            int quantity = json.quantity().asIntStrict();
+            if (quantity <= 0) {
+                return ResponseEntity.status(400).body("{\"error\": \"Invalid field values\"}");
+            }
+
+            Integer fromMemory = hotStock.reserve(id, quantity);
+            if (fromMemory != null) {
+                if (fromMemory < 0) {
+                    return ResponseEntity.status(409).body("{\"error\": \"Insufficient quantity\"}");
+                }
+                productCache.invalidate(id);
+                return ResponseEntity.ok(stockBody(id, fromMemory));
+            }
+
+            Optional<Integer> remaining = productRepository.reserveStock(id, quantity);
+            if (!remaining.isPresent()) {
+                if (!productRepository.existsById(id)) {
+                    return ResponseEntity.status(404).body("{\"error\": \"Product not found\"}");
+                }
+                return ResponseEntity.status(409).body("{\"error\": \"Insufficient quantity\"}");
+            }
+            productCache.invalidate(id);
+            return ResponseEntity.ok(stockBody(id, remaining.get()));
+        } catch (Exception e) {
+            return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
+        }
+    }
+
+    // Returns previously reserved quantity to stock (compensation for a failed order)
+    private ResponseEntity<?> releaseProduct(ProductCommand json) {
+        if (json.id() == null || json.quantity() == null) {
+            return ResponseEntity.status(400).body("{\"error\": \"Missing required fields\"}");
+        }
+
+        try {
+            int id = json.id().asIntStrict();
+            int quantity = json.quantity().asIntStrict();
+            if (quantity <= 0) {
+                return ResponseEntity.status(400).body("{\"error\": \"Invalid field values\"}");
+            }
+
+            Integer fromMemory = hotStock.release(id, quantity);
+            if (fromMemory != null) {
+                productCache.invalidate(id);
+                return ResponseEntity.ok(stockBody(id, fromMemory));
+            }
+
+            Optional<Integer> remaining = productRepository.releaseStock(id, quantity);
+            if (!remaining.isPresent()) {
+                return ResponseEntity.status(404).body("{\"error\": \"Product not found\"}");
+            }
+            productCache.invalidate(id);
+            return ResponseEntity.ok(stockBody(id, remaining.get()));
+        } catch (Exception e) {
+            return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
         }
-        return (int) value;
+    }
+
+    static JsonBody stockBody(int id, int quantity) {
+        return out -> out.beginObject()
+                .name("id").value(id)
+                .name("quantity").value(quantity)
+                .endObject();
     }
 
     // Delete all products (called by OrderService on non-restart startup)
     @DeleteMapping("/deleteall")
-    public ResponseEntity<?> deleteAllProducts() {
+    public WebAsyncTask<ResponseEntity<?>> deleteAllProducts() {
+        return bulkhead.admin(this::wipeProducts);
+    }
+
+    private ResponseEntity<?> wipeProducts() {
         try {
-            productRepository.deleteAll();
+            productRepository.truncate();
+            productIds.clear();
+            hotStock.clear();
+            productCache.invalidateAll();
             return ResponseEntity.ok("{\"message\": \"All products deleted\"}");
         } catch (Exception e) {
             return ResponseEntity.status(500).body("{\"error\": \"Failed to delete all products\"}");
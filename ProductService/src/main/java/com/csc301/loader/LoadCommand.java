@@ -0,0 +1,53 @@
+package com.csc301.loader;
+
+import com.csc301.ProductServiceApp;
+import com.csc301.util.JsonCodec;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Runs a {@link ProductLoader} load from the command line with the service's datasource settings,
+ * without starting its web server. "-" reads standard input. Any further arguments go to Spring,
+ * e.g. --spring.datasource.url=...
+ *
+ *   java -cp target/product-service-1.0.0.jar -Dloader.main=com.csc301.loader.LoadCommand \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher workload.txt
+ *
+ * A ProductService that is already running only sees the new ids once its id bitmap reloads.
+ * POST /product/load updates the running replica directly.
+ */
+public class LoadCommand {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadCommand <workload or NDJSON file | -> [--property=value ...]");
+            System.exit(2);
+        }
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProductServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("id-bitmap.enabled=false")
+                .run(Arrays.copyOfRange(args, 1, args.length));
+        int status = 0;
+        try (BufferedReader in = "-".equals(args[0])
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            LoadReport report = context.getBean(ProductLoader.class).load(in);
+            System.out.println(JsonCodec.toJson(report.toJson()));
+        } catch (Exception e) {
+            System.err.println("Load failed: " + e.getMessage());
+            status = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(status);
+    }
+}
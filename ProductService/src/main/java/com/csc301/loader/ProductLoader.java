@@ -0,0 +1,97 @@
+package com.csc301.loader;
+
+import com.csc301.controller.NewProduct;
+import com.csc301.controller.ProductCommand;
+import com.csc301.model.Product;
+import com.csc301.repository.IdBitmap;
+import com.csc301.repository.JsonBodyCache;
+import com.csc301.util.JsonField;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+
+/**
+ * Seeds the product table from a workload file or NDJSON through {@link CopyLoader}.
+ *
+ * Workload lines are "PRODUCT create <id> <name> <description> <price> <quantity>", as
+ * WorkloadParser reads them, and every other command is skipped. NDJSON lines are POST /product
+ * create bodies, with or without the command. Each row must pass the same rules as a create.
+ * Loaded ids go into the id bitmap, and the GET cache is cleared once the load ends.
+ */
+@Component
+public class ProductLoader {
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private IdBitmap productIds;
+
+    @Autowired
+    private JsonBodyCache productCache;
+
+    @Value("${loader.chunk-rows:50000}")
+    private int chunkRows;
+
+    @Value("${loader.queue-chunks:4}")
+    private int queueChunks;
+
+    public LoadReport load(BufferedReader in) throws Exception {
+        LoadReport report = new LoadReport();
+        CopyLoader.Session session = new CopyLoader(dataSource, "product", "id, name, description, price, quantity",
+                chunkRows, queueChunks).open(productIds::add);
+        try {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                long number = report.line();
+                ProductCommand command = parse(line.trim());
+                if (command == null) {
+                    report.skip();
+                    continue;
+                }
+                NewProduct checked = NewProduct.check(command);
+                if (checked.error() != null) {
+                    report.reject(number, checked.error());
+                    continue;
+                }
+                Product product = checked.product();
+                session.add(product.getId(), product.getProductname(), product.getDescription(),
+                        product.getPrice(), product.getQuantity());
+            }
+            report.finish(session.rows(), session.finish());
+            return report;
+        } catch (Exception e) {
+            session.abort();
+            throw e;
+        } finally {
+            productCache.invalidateAll();
+        }
+    }
+
+    // The create on line, or null if it is not one; unreadable JSON gives a command that fails the rules
+    private static ProductCommand parse(String line) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+        if (line.startsWith("{")) {
+            ProductCommand command;
+            try {
+                command = ProductCommand.decode(line);
+            } catch (RuntimeException e) {
+                return new ProductCommand(null, null, null, null, null, null, null);
+            }
+            boolean create = command.command() == null || "create".equalsIgnoreCase(command.command().asString());
+            return create ? command : null;
+        }
+        String[] parts = line.split("\\s+");
+        if (parts.length < 2 || !parts[0].equalsIgnoreCase("PRODUCT") || !parts[1].equalsIgnoreCase("create")) {
+            return null;
+        }
+        return new ProductCommand(null, field(parts, 2), field(parts, 3), field(parts, 4), field(parts, 5), field(parts, 6), null);
+    }
+
+    private static JsonField field(String[] parts, int index) {
+        return index < parts.length ? JsonField.string(parts[index]) : null;
+    }
+}
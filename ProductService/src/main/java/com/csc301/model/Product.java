@@ -3,11 +3,16 @@ package com.csc301.model;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+import org.springframework.data.domain.Persistable;
 
 @Entity
 @Table(name = "product")
-public class Product {
+public class Product implements Persistable<Integer> {
     @Id
     @Column(name = "id")
     private int id;
@@ -18,12 +23,24 @@ public class Product {
     @Column
     private String description;
 
-    @Column(name = "price", nullable = false)
+    // init-db.sql declares DECIMAL(10, 2); spelled as Postgres reports it so ddl-auto=validate accepts either schema
+    @Column(name = "price", nullable = false, columnDefinition = "numeric(10, 2)")
     private float price;
 
     @Column(name = "quantity", nullable = false)
     private int quantity;
 
+    // Bumped by every update, which only applies if the row still has the version it was read at. Stock
+    // moves (reserve, release, hot-stock leases) bump it too, or an update would write back a stale quantity.
+    // The default lets COPY loads and rows from before this column leave it out
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // Ids are assigned up front, so tell Spring Data which rows are new to get a plain INSERT instead of merge
+    @Transient
+    private boolean isNew = true;
+
     public Product() {}
 
     public Product(int id, String productname, float price, int quantity) {
@@ -34,7 +51,8 @@ public class Product {
         this.quantity = quantity;
     }
 
-    public int getId() { return id; }
+    @Override
+    public Integer getId() { return id; }
     public void setId(int id) { this.id = id; }
 
     public String getProductname() { return name; }
@@ -51,4 +69,13 @@ public class Product {
 
     public int getQuantity() { return quantity; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public long getVersion() { return version; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
 }
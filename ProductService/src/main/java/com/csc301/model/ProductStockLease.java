@@ -0,0 +1,67 @@
+package com.csc301.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Stock one ProductService replica has taken out of product.quantity to sell from memory (see HotStock).
+ * A product's available quantity is its own column plus the quantity of all of its leases.
+ */
+@Entity
+@Table(name = "product_stock_lease")
+@IdClass(ProductStockLease.Key.class)
+public class ProductStockLease {
+    @Id
+    @Column(name = "product_id")
+    private int productId;
+
+    @Id
+    @Column(name = "replica", length = 255)
+    private String replica;
+
+    // What the replica held at its last write-back
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+
+    // Refreshed on every write-back; a lease left alone for too long belongs to a replica that is gone
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public ProductStockLease() {}
+
+    public int getProductId() { return productId; }
+    public String getReplica() { return replica; }
+    public int getQuantity() { return quantity; }
+    public Instant getUpdatedAt() { return updatedAt; }
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int productId;
+        private String replica;
+
+        public Key() {}
+
+        public Key(int productId, String replica) {
+            this.productId = productId;
+            this.replica = replica;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && productId == other.productId && Objects.equals(replica, other.replica);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, replica);
+        }
+    }
+}
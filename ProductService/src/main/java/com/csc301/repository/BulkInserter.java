@@ -0,0 +1,53 @@
+package com.csc301.repository;
+
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Inserts new rows for a bulk create. Each chunk of batchSize entities is one transaction whose
+ * INSERTs Hibernate sends as JDBC batches (hibernate.jdbc.batch_size), which the Postgres driver
+ * rewrites into multi-row statements (reWriteBatchedInserts).
+ *
+ * Callers check for conflicts up front, so a chunk only fails when a row was created concurrently;
+ * that chunk is then retried one row at a time so only the conflicting rows are rejected.
+ */
+public class BulkInserter<T extends Persistable<Integer>> {
+    private final JpaRepository<T, Integer> repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    // A new, unsaved copy of an entity, for retrying a row whose chunk was rolled back
+    private final UnaryOperator<T> copy;
+
+    public BulkInserter(JpaRepository<T, Integer> repository, TransactionTemplate transactionTemplate,
+                        int batchSize, UnaryOperator<T> copy) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.copy = copy;
+    }
+
+    /** Inserts entities; the result holds, per entity, null if it was inserted or the error that kept it out. */
+    public RuntimeException[] insertAll(List<T> entities) {
+        RuntimeException[] errors = new RuntimeException[entities.size()];
+        for (int from = 0; from < entities.size(); from += batchSize) {
+            List<T> chunk = entities.subList(from, Math.min(from + batchSize, entities.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> repository.saveAll(chunk));
+            } catch (RuntimeException e) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    T row = copy.apply(chunk.get(i));
+                    try {
+                        repository.save(row);
+                    } catch (RuntimeException rowError) {
+                        errors[from + i] = rowError;
+                    }
+                }
+            }
+        }
+        return errors;
+    }
+}
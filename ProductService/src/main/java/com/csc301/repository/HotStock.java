@@ -0,0 +1,361 @@
+package com.csc301.repository;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hot products: stock for them is sold from memory instead of one contended product row.
+ *
+ * A hot product's replica leases a slice of its stock: the slice leaves product.quantity and is
+ * recorded in product_stock_lease, so replicas never sell the same units. The slice sits in a
+ * {@link StripedCounter} that reserves take from lock-free. When a stripe runs dry, the reserve
+ * drains and evens out the stripes under the product's lock, and leases more if that is still not enough.
+ * The lock is a ReentrantLock rather than a monitor because it is held across the lease queries, and a
+ * virtual thread blocked on JDBC inside synchronized would pin its carrier thread.
+ *
+ * Every flushMs each lease is written back with what the replica still holds. A write-back that
+ * finds its lease gone (an update set the quantity, the product was deleted, or the lease was
+ * reclaimed) drops the stock. A product that sees no reserve for coolDownMs, and any product at
+ * shutdown, returns its stock to product.quantity. Leases a replica left when it died are returned
+ * once they go orphanMs without a write-back; up to one flush of sales can be returned with them.
+ *
+ * Products are hot when listed in hotIds, or once they get detectRate reserves a second (0 turns detection off).
+ */
+public class HotStock {
+    private final StockLeaseRepository leases;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String replica;
+    private final Set<Integer> hotIds;
+    private final double detectRate;
+    private final int stripes;
+    private final int leaseSize;
+    private final long flushMs;
+    private final long coolDownMs;
+    private final long orphanMs;
+
+    private final Map<Integer, Stock> stocks = new ConcurrentHashMap<>();
+    // Reserves per product since the last flush, for detection
+    private final Map<Integer, LongAdder> reserveCounts = new ConcurrentHashMap<>();
+    private final LongAdder memoryReserves = new LongAdder();
+    private final LongAdder leasesTaken = new LongAdder();
+    private ScheduledExecutorService flusher;
+    private long lastOrphanCheck;
+
+    public HotStock(StockLeaseRepository leases, TransactionTemplate transactionTemplate, boolean enabled, String replica,
+                    Set<Integer> hotIds, double detectRate, int stripes, int leaseSize, long flushMs,
+                    long coolDownMs, long orphanMs) {
+        this.leases = leases;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.replica = replica;
+        this.hotIds = Set.copyOf(hotIds);
+        this.detectRate = detectRate;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.leaseSize = Math.max(1, leaseSize);
+        this.flushMs = Math.max(1, flushMs);
+        this.coolDownMs = coolDownMs;
+        this.orphanMs = orphanMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        int reclaimed = leases.reclaimReplica(replica);
+        if (reclaimed > 0) {
+            System.out.println("Returned stock leased by " + replica + " before it restarted, for " + reclaimed + " products");
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-stock-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Returns every lease; runs before the datasource closes. */
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdownNow();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Stock stock : stocks.values()) {
+            stock.giveBack();
+        }
+    }
+
+    /**
+     * Reserves from memory if the product is hot: the stock left (this replica's exactly, the rest as
+     * of the last flush), or -1 if there is not enough. Null means the caller must reserve in Postgres.
+     */
+    public Integer reserve(int id, int quantity) {
+        if (!enabled) {
+            return null;
+        }
+        Stock stock = stocks.get(id);
+        if (stock == null) {
+            if (!hotIds.contains(id)) {
+                if (detectRate > 0) {
+                    reserveCounts.computeIfAbsent(id, key -> new LongAdder()).increment();
+                }
+                return null;
+            }
+            stock = stocks.computeIfAbsent(id, Stock::new);
+        }
+        return stock.reserve(quantity);
+    }
+
+    /** Puts quantity back into memory if the product is hot; as {@link #reserve}, null means use Postgres. */
+    public Integer release(int id, int quantity) {
+        Stock stock = enabled ? stocks.get(id) : null;
+        return stock != null ? stock.release(quantity) : null;
+    }
+
+    /** What this replica holds in memory for the product, on top of product.quantity and other replicas' leases. */
+    public long heldHere(int id) {
+        Stock stock = enabled ? stocks.get(id) : null;
+        return stock != null ? stock.held() : 0;
+    }
+
+    /** The product's available quantity across every replica, or empty if it does not exist. */
+    public Optional<Long> available(int id, int columnQuantity) {
+        if (!enabled) {
+            return Optional.of((long) columnQuantity);
+        }
+        return leases.quantityOutside(id, replica).map(outside -> outside + heldHere(id));
+    }
+
+    /** Drops every lease on the product, here and on other replicas, before its quantity is set or it is deleted. */
+    public void revoke(int id) {
+        if (!enabled) {
+            return;
+        }
+        Stock stock = stocks.get(id);
+        if (stock != null) {
+            stock.drop();
+        }
+        leases.revoke(id);
+    }
+
+    /** Forgets all stock after a wipe; the wipe's TRUNCATE has already removed the leases. */
+    public void clear() {
+        for (Stock stock : stocks.values()) {
+            stock.drop();
+        }
+        reserveCounts.clear();
+    }
+
+    public JsonObject stats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("enabled", enabled);
+        stats.addProperty("replica", replica);
+        stats.addProperty("stripes", stripes);
+        stats.addProperty("memoryReserves", memoryReserves.sum());
+        stats.addProperty("leasesTaken", leasesTaken.sum());
+        JsonArray products = new JsonArray();
+        for (Stock stock : stocks.values()) {
+            JsonObject product = new JsonObject();
+            product.addProperty("id", stock.id);
+            product.addProperty("held", stock.held());
+            product.addProperty("outside", stock.outside);
+            products.add(product);
+        }
+        stats.add("products", products);
+        return stats;
+    }
+
+    private void flush() {
+        try {
+            long now = System.nanoTime();
+            for (Stock stock : stocks.values()) {
+                stock.flush(now);
+            }
+            if (detectRate > 0) {
+                long threshold = (long) Math.ceil(detectRate * flushMs / 1000.0);
+                for (Map.Entry<Integer, LongAdder> entry : reserveCounts.entrySet()) {
+                    if (entry.getValue().sum() >= threshold) {
+                        stocks.computeIfAbsent(entry.getKey(), Stock::new);
+                    }
+                }
+                reserveCounts.clear();
+            }
+            if (orphanMs > 0 && now - lastOrphanCheck >= TimeUnit.MILLISECONDS.toNanos(orphanMs) / 2) {
+                lastOrphanCheck = now;
+                leases.reclaimOrphans(orphanMs);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Hot stock flush failed: " + e.getMessage());
+        }
+    }
+
+    private final class Stock {
+        private final int id;
+        private final StripedCounter counter = new StripedCounter(stripes);
+        private final LongAdder reserves = new LongAdder();
+        private final ReentrantLock lock = new ReentrantLock();
+        // Guarded by lock
+        private boolean active = true;
+        private boolean leased;
+        private long lastReserveAt = System.nanoTime();
+        // Stock outside this replica (product.quantity and other leases) as of the last refill or flush
+        private volatile long outside;
+
+        private Stock(int id) {
+            this.id = id;
+        }
+
+        Integer reserve(int quantity) {
+            if (counter.tryTake(quantity)) {
+                reserves.increment();
+                memoryReserves.increment();
+                return remaining();
+            }
+            lock.lock();
+            try {
+                if (!active) {
+                    return null;
+                }
+                long pool = counter.drain();
+                if (pool < quantity) {
+                    // Put what is left back while the lease queries run, so smaller reserves keep selling it lock-free
+                    counter.distribute(pool);
+                    Optional<Integer> taken = lease((int) Math.min(Integer.MAX_VALUE, (long) leaseSize + quantity - pool));
+                    pool = counter.drain();
+                    if (taken.isEmpty() && !leased) {
+                        // The product does not exist (or was deleted); let the Postgres path answer 404
+                        counter.distribute(pool);
+                        drop();
+                        return null;
+                    }
+                    pool += taken.orElse(0);
+                }
+                boolean reserved = pool >= quantity;
+                counter.distribute(reserved ? pool - quantity : pool);
+                if (!reserved) {
+                    return -1;
+                }
+                reserves.increment();
+                memoryReserves.increment();
+                return remaining();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Integer release(int quantity) {
+            lock.lock();
+            try {
+                // Without a lease there is no row to write the units back to; let Postgres take them
+                if (!active || !leased) {
+                    return null;
+                }
+                counter.add(quantity);
+                return remaining();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long held() {
+            return counter.sum();
+        }
+
+        // Called with lock held: moves up to max from product.quantity into this replica's lease
+        private Optional<Integer> lease(int max) {
+            Optional<Integer> taken = transactionTemplate.execute(status -> {
+                Optional<Integer> n = leases.takeStock(id, max);
+                if (n.isPresent() && n.get() > 0) {
+                    leases.addLease(id, replica, n.get());
+                }
+                return n;
+            });
+            if (taken.isPresent() && taken.get() > 0) {
+                leased = true;
+                leasesTaken.increment();
+            }
+            if (taken.isPresent()) {
+                outside = leases.quantityOutside(id, replica).orElse(0L);
+            }
+            return taken;
+        }
+
+        void flush(long now) {
+            lock.lock();
+            try {
+                if (!active) {
+                    return;
+                }
+                if (reserves.sumThenReset() > 0) {
+                    lastReserveAt = now;
+                } else if (!hotIds.contains(id) && now - lastReserveAt >= TimeUnit.MILLISECONDS.toNanos(coolDownMs)) {
+                    giveBack();
+                    return;
+                }
+                if (!leased) {
+                    return;
+                }
+                if (leases.writeBack(id, replica, (int) counter.sum()) == 0) {
+                    // Revoked elsewhere: the stock is no longer ours to sell
+                    drop();
+                    return;
+                }
+                outside = leases.quantityOutside(id, replica).orElse(0L);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Returns what is held to product.quantity and stops selling from memory
+        void giveBack() {
+            lock.lock();
+            try {
+                if (!active) {
+                    return;
+                }
+                long held = counter.drain();
+                active = false;
+                stocks.remove(id, this);
+                if (leased) {
+                    leases.returnLease(id, replica, (int) held);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void drop() {
+            lock.lock();
+            try {
+                counter.drain();
+                active = false;
+                stocks.remove(id, this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int remaining() {
+            return (int) Math.min(Integer.MAX_VALUE, outside + counter.sum());
+        }
+    }
+}
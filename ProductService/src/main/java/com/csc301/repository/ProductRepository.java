@@ -2,10 +2,43 @@ package com.csc301.repository;
 
 import com.csc301.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
     Optional<Product> findByName(String name);
+
+    @Query("SELECT p.id FROM Product p")
+    List<Integer> findAllIds();
+
+    /** Which of ids already exist, in one query; the conflict check for bulk creates. */
+    @Query(value = "SELECT id FROM product WHERE id = ANY(:ids)", nativeQuery = true)
+    List<Integer> findExistingIds(@Param("ids") Integer[] ids);
+
+    /**
+     * Empties the table in constant time, however many rows it holds; CASCADE also empties the order
+     * tables and the hot-stock leases that reference it.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "TRUNCATE TABLE product, product_stock_lease CASCADE", nativeQuery = true)
+    void truncate();
+
+    /** Takes stock in one conditional UPDATE; empty if the product is missing or has too little left. */
+    @Transactional
+    @Query(value = "UPDATE product SET quantity = quantity - :quantity, version = version + 1 WHERE id = :id AND quantity >= :quantity RETURNING quantity",
+           nativeQuery = true)
+    Optional<Integer> reserveStock(@Param("id") int id, @Param("quantity") int quantity);
+
+    /** Puts back stock taken by reserveStock; empty if the product no longer exists. */
+    @Transactional
+    @Query(value = "UPDATE product SET quantity = quantity + :quantity, version = version + 1 WHERE id = :id RETURNING quantity",
+           nativeQuery = true)
+    Optional<Integer> releaseStock(@Param("id") int id, @Param("quantity") int quantity);
 }
@@ -0,0 +1,77 @@
+package com.csc301.repository;
+
+import com.csc301.model.ProductStockLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/** Moves stock between product.quantity and the per-replica leases HotStock sells from. */
+@Repository
+public interface StockLeaseRepository extends JpaRepository<ProductStockLease, ProductStockLease.Key> {
+
+    /** Takes up to max from product.quantity; the amount taken, or empty if the product is missing. */
+    @Transactional
+    @Query(value = "UPDATE product p SET quantity = p.quantity - t.n, version = p.version + 1 "
+            + "FROM (SELECT id, LEAST(quantity, :max) AS n FROM product WHERE id = :id FOR UPDATE) t "
+            + "WHERE p.id = t.id RETURNING t.n", nativeQuery = true)
+    Optional<Integer> takeStock(@Param("id") int id, @Param("max") int max);
+
+    /** Adds quantity to replica's lease on the product, creating it if needed. */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO product_stock_lease (product_id, replica, quantity, updated_at) "
+            + "VALUES (:id, :replica, :quantity, now()) ON CONFLICT (product_id, replica) "
+            + "DO UPDATE SET quantity = product_stock_lease.quantity + EXCLUDED.quantity, updated_at = now()",
+            nativeQuery = true)
+    int addLease(@Param("id") int id, @Param("replica") String replica, @Param("quantity") int quantity);
+
+    /** Records what replica holds now; 0 rows means the lease was revoked and the stock is no longer its to sell. */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE product_stock_lease SET quantity = :quantity, updated_at = now() "
+            + "WHERE product_id = :id AND replica = :replica", nativeQuery = true)
+    int writeBack(@Param("id") int id, @Param("replica") String replica, @Param("quantity") int quantity);
+
+    /** Ends replica's lease and puts the quantity it still holds back into product.quantity; 0 if it was revoked. */
+    @Transactional
+    @Modifying
+    @Query(value = "WITH gone AS (DELETE FROM product_stock_lease WHERE product_id = :id AND replica = :replica RETURNING 1) "
+            + "UPDATE product SET quantity = quantity + :quantity, version = version + 1 WHERE id = :id AND EXISTS (SELECT 1 FROM gone)",
+            nativeQuery = true)
+    int returnLease(@Param("id") int id, @Param("replica") String replica, @Param("quantity") int quantity);
+
+    /** Drops every lease on the product without returning it, for an update that sets the quantity outright. */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM product_stock_lease WHERE product_id = :id", nativeQuery = true)
+    int revoke(@Param("id") int id);
+
+    /** Returns the leases replica left behind when it last stopped without returning them. */
+    @Transactional
+    @Modifying
+    @Query(value = "WITH gone AS (DELETE FROM product_stock_lease WHERE replica = :replica RETURNING product_id, quantity) "
+            + "UPDATE product p SET quantity = p.quantity + g.quantity, version = p.version + 1 "
+            + "FROM (SELECT product_id, SUM(quantity) AS quantity FROM gone GROUP BY product_id) g WHERE p.id = g.product_id",
+            nativeQuery = true)
+    int reclaimReplica(@Param("replica") String replica);
+
+    /** Returns leases not written back for olderThanMs, whose replica is presumed dead. */
+    @Transactional
+    @Modifying
+    @Query(value = "WITH gone AS (DELETE FROM product_stock_lease WHERE updated_at < now() - :olderThanMs * interval '1 millisecond' "
+            + "RETURNING product_id, quantity) "
+            + "UPDATE product p SET quantity = p.quantity + g.quantity, version = p.version + 1 "
+            + "FROM (SELECT product_id, SUM(quantity) AS quantity FROM gone GROUP BY product_id) g WHERE p.id = g.product_id",
+            nativeQuery = true)
+    int reclaimOrphans(@Param("olderThanMs") long olderThanMs);
+
+    /** product.quantity plus the leases of every other replica, as of their last write-back; empty if the product is missing. */
+    @Query(value = "SELECT p.quantity + COALESCE((SELECT SUM(l.quantity) FROM product_stock_lease l "
+            + "WHERE l.product_id = p.id AND l.replica <> :replica), 0) FROM product p WHERE p.id = :id", nativeQuery = true)
+    Optional<Long> quantityOutside(@Param("id") int id, @Param("replica") String replica);
+}
@@ -0,0 +1,78 @@
+package com.csc301.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A non-negative count split across stripes, each on its own cache line, so threads taking from
+ * it mostly CAS different words. A take only ever comes out of one stripe, so it can fail while
+ * the stripes hold enough between them; the owner then drains and redistributes (see HotStock).
+ */
+public class StripedCounter {
+    // 8 longs = 64 bytes between stripes, so no two stripes share a cache line
+    private static final int PAD = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    public StripedCounter(int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicLongArray(this.stripes * PAD);
+    }
+
+    /** Takes quantity from the calling thread's stripe, else from the first other stripe that has it. */
+    public boolean tryTake(int quantity) {
+        int home = home();
+        for (int k = 0; k < stripes; k++) {
+            int index = ((home + k) % stripes) * PAD;
+            long value = cells.get(index);
+            while (value >= quantity) {
+                if (cells.compareAndSet(index, value, value - quantity)) {
+                    return true;
+                }
+                value = cells.get(index);
+            }
+        }
+        return false;
+    }
+
+    /** Adds to the calling thread's stripe. */
+    public void add(long quantity) {
+        cells.getAndAdd(home() * PAD, quantity);
+    }
+
+    /** Empties every stripe and returns what they held; adds that race with it land after and are kept. */
+    public long drain() {
+        long total = 0;
+        for (int s = 0; s < stripes; s++) {
+            total += cells.getAndSet(s * PAD, 0);
+        }
+        return total;
+    }
+
+    /** Spreads quantity evenly over the stripes, on top of what they hold. */
+    public void distribute(long quantity) {
+        long share = quantity / stripes;
+        long extra = quantity % stripes;
+        for (int s = 0; s < stripes; s++) {
+            cells.getAndAdd(s * PAD, share + (s < extra ? 1 : 0));
+        }
+    }
+
+    /** Sum of the stripes; exact only while nothing is taking or adding. */
+    public long sum() {
+        long total = 0;
+        for (int s = 0; s < stripes; s++) {
+            total += cells.get(s * PAD);
+        }
+        return total;
+    }
+
+    public int stripes() {
+        return stripes;
+    }
+
+    private int home() {
+        long id = Thread.currentThread().getId();
+        return (int) (((id * 0x9E3779B97F4A7C15L) >>> 33) % stripes);
+    }
+}
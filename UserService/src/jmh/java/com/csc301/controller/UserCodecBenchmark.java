@@ -0,0 +1,81 @@
+package com.csc301.controller;
+
+import com.csc301.model.User;
+import com.csc301.util.JsonCodec;
+import com.csc301.util.Sha256PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserController's request decoding and response encoding, without the repository or Tomcat:
+ * decode-and-validate a create body, and render a user once as a cached String and once straight
+ * to the response stream.
+ * Run with -Djmh.args="UserCodecBenchmark -prof gc" to see bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCodecBenchmark {
+    private String createBody;
+    private User user;
+
+    @Setup
+    public void buildBodies() {
+        createBody = "{\"command\": \"create\", \"id\": 1001, \"username\": \"user1001\","
+                + " \"email\": \"user1001@example.com\", \"password\": \"password1001\"}";
+        user = new User(1001, "user1001", "user1001@example.com", new Sha256PasswordHasher().hash("password1001"));
+    }
+
+    @Benchmark
+    public UserCommand decodeCreate() {
+        UserCommand json = UserCommand.decode(createBody);
+        if (!"create".equals(json.command().asString()) || json.id().asInt() != 1001
+                || !json.username().isString() || !json.email().isString() || !json.password().isString()
+                || json.username().asString().isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return json;
+    }
+
+    @Benchmark
+    public String renderUser() {
+        return JsonCodec.toJson(UserController.userBody(user));
+    }
+
+    @Benchmark
+    public CountingStream writeUser() throws IOException {
+        CountingStream out = new CountingStream();
+        JsonCodec.write(UserController.userBody(user), out);
+        return out;
+    }
+
+    // Stands in for the servlet stream, which the container owns and reuses across requests
+    public static class CountingStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.csc301.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing as create, update and delete run it: the old User.hashPassword against
+ * Sha256PasswordHasher, single-threaded and with 4 threads hashing at once, and a PBKDF2 delete
+ * check with and without the verification cache.
+ * Run with -Djmh.args="PasswordHasherBenchmark -prof gc" and compare gc.alloc.rate.norm (bytes per hash).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    @Param({"8", "64"})
+    public int length;
+
+    private String password;
+    private Sha256PasswordHasher sha256;
+    private Pbkdf2PasswordHasher pbkdf2;
+    private CachingPasswordHasher cachedPbkdf2;
+    private String pbkdf2Stored;
+
+    @Setup
+    public void buildHashers() {
+        password = "p".repeat(length);
+        sha256 = new Sha256PasswordHasher();
+        // Far below the 600000 default, so an iteration finishes in reasonable time; cost scales linearly
+        pbkdf2 = new Pbkdf2PasswordHasher(10_000);
+        cachedPbkdf2 = new CachingPasswordHasher(pbkdf2, 10_000, 600_000);
+        pbkdf2Stored = pbkdf2.hash(password);
+    }
+
+    @Benchmark
+    public String legacyHash() {
+        return legacyHashPassword(password);
+    }
+
+    @Benchmark
+    public String sha256Hash() {
+        return sha256.hash(password);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String legacyHashContended() {
+        return legacyHashPassword(password);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sha256HashContended() {
+        return sha256.hash(password);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean pbkdf2Verify() {
+        return pbkdf2.matches(password, pbkdf2Stored);
+    }
+
+    @Benchmark
+    public boolean pbkdf2VerifyCached() {
+        return cachedPbkdf2.matches(password, pbkdf2Stored);
+    }
+
+    // User.hashPassword before PasswordHasher
+    private static String legacyHashPassword(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(password.getBytes());
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString().toLowerCase();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to hash password", e);
+        }
+    }
+}
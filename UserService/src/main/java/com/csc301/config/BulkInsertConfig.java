@@ -0,0 +1,21 @@
+package com.csc301.config;
+
+import com.csc301.model.User;
+import com.csc301.repository.BulkInserter;
+import com.csc301.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class BulkInsertConfig {
+
+    @Bean
+    public BulkInserter<User> userInserter(UserRepository userRepository,
+                                           TransactionTemplate transactionTemplate,
+                                           @Value("${bulk.batch-size:1000}") int batchSize) {
+        return new BulkInserter<>(userRepository, transactionTemplate, batchSize,
+                user -> new User(user.getId(), user.getUsername(), user.getEmail(), user.getPasswordHash()));
+    }
+}
@@ -0,0 +1,224 @@
+package com.csc301.config;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms, error counts and in-flight gauges for this replica, rendered in Prometheus
+ * text format at GET /metrics.
+ *
+ * Timers record into HdrHistogram Recorders, which are wait-free and allocate nothing on the
+ * recording thread; all copying happens on the scrape. Quantiles cover a sliding window of one to
+ * two metrics.window-ms periods, while _count, _sum and the error counters are cumulative.
+ */
+@Component
+public class LatencyMetrics {
+    /** Status recorded for a call that ended in an exception instead of a response. */
+    public static final int FAILED = 0;
+
+    private static final long MAX_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public enum Family {
+        REQUEST("request", "Time to handle each endpoint or command", "endpoint"),
+        DOWNSTREAM("downstream", "Time for each call to another service through ISCS", "service", "method"),
+        REPOSITORY("repository", "Time spent in each repository method", "repository", "method");
+
+        final String prefix;
+        final String help;
+        final String[] labels;
+
+        Family(String prefix, String help, String... labels) {
+            this.prefix = prefix;
+            this.help = help;
+            this.labels = labels;
+        }
+    }
+
+    private final long windowNanos;
+    private final ConcurrentHashMap<Family, ConcurrentHashMap<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public LatencyMetrics(@Value("${metrics.window-ms:60000}") long windowMs) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        for (Family family : Family.values()) {
+            timers.put(family, new ConcurrentHashMap<>());
+        }
+    }
+
+    /** Timer for one endpoint or command; a plain map hit once the timer exists. */
+    public Timer request(String endpoint) {
+        Timer timer = timers.get(Family.REQUEST).get(endpoint);
+        return timer != null ? timer : timer(Family.REQUEST, endpoint);
+    }
+
+    /** Timer for one combination of the family's label values; look it up once and keep it. */
+    public Timer timer(Family family, String... values) {
+        if (values.length != family.labels.length) {
+            throw new IllegalArgumentException(family + " takes " + family.labels.length + " label values");
+        }
+        String key = values.length == 1 ? values[0] : String.join("\u0000", values);
+        return timers.get(family).computeIfAbsent(key, k -> new Timer(renderLabels(family, values)));
+    }
+
+    public String scrape() {
+        long now = System.nanoTime();
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : Family.values()) {
+            List<Timer> familyTimers = new ArrayList<>(timers.get(family).values());
+            if (familyTimers.isEmpty()) {
+                continue;
+            }
+            familyTimers.sort((a, b) -> a.labels.compareTo(b.labels));
+            List<Snapshot> snapshots = new ArrayList<>(familyTimers.size());
+            for (Timer timer : familyTimers) {
+                snapshots.add(timer.snapshot(now, windowNanos));
+            }
+
+            String duration = family.prefix + "_duration_seconds";
+            out.append("# HELP ").append(duration).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(duration).append(" summary\n");
+            for (Snapshot snapshot : snapshots) {
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    out.append(duration).append('{').append(snapshot.labels)
+                            .append(",quantile=\"").append(QUANTILES[i]).append("\"} ")
+                            .append(seconds(snapshot.quantileNanos[i])).append('\n');
+                }
+                out.append(duration).append("_sum{").append(snapshot.labels).append("} ")
+                        .append(seconds(snapshot.totalNanos)).append('\n');
+                out.append(duration).append("_count{").append(snapshot.labels).append("} ")
+                        .append(snapshot.count).append('\n');
+            }
+
+            String errors = family.prefix + "_errors_total";
+            out.append("# HELP ").append(errors).append(" Calls that ended in a 4xx/5xx status or an exception (status=\"failed\")\n");
+            out.append("# TYPE ").append(errors).append(" counter\n");
+            for (Snapshot snapshot : snapshots) {
+                for (int status = 0; status < snapshot.errors.length; status++) {
+                    if (snapshot.errors[status] > 0) {
+                        out.append(errors).append('{').append(snapshot.labels)
+                                .append(",status=\"").append(status == FAILED ? "failed" : String.valueOf(status))
+                                .append("\"} ").append(snapshot.errors[status]).append('\n');
+                    }
+                }
+            }
+
+            String inFlight = family.prefix + "_in_flight";
+            out.append("# HELP ").append(inFlight).append(" Calls started but not yet finished\n");
+            out.append("# TYPE ").append(inFlight).append(" gauge\n");
+            for (Snapshot snapshot : snapshots) {
+                out.append(inFlight).append('{').append(snapshot.labels).append("} ")
+                        .append(snapshot.inFlight).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String renderLabels(Family family, String[] values) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(family.labels[i]).append("=\"")
+                    .append(values[i].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return labels.toString();
+    }
+
+    private static String seconds(double nanos) {
+        return Double.isNaN(nanos) ? "NaN" : String.valueOf(nanos / 1e9);
+    }
+
+    /**
+     * One histogram plus its counters. start/stop are safe from any thread and allocate nothing;
+     * every start must be matched by exactly one stop or the in-flight gauge drifts.
+     */
+    public static final class Timer {
+        private final String labels;
+        private final Recorder recorder = new Recorder(MAX_NANOS, 2);
+        private final AtomicLong inFlight = new AtomicLong();
+        private final LongAdder totalNanos = new LongAdder();
+        // Index is the status code; FAILED (0) counts exceptions
+        private final AtomicLongArray errors = new AtomicLongArray(600);
+
+        // Scrape side, guarded by this
+        private Histogram interval;
+        private final Histogram current = new Histogram(MAX_NANOS, 2);
+        private final Histogram previous = new Histogram(MAX_NANOS, 2);
+        private long currentStartedAt = System.nanoTime();
+        private long count;
+
+        Timer(String labels) {
+            this.labels = labels;
+        }
+
+        public long start() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        /** Records the call and returns its duration in nanoseconds. */
+        public long stop(long start, int status) {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            recorder.recordValue(Math.max(0, Math.min(elapsed, MAX_NANOS)));
+            totalNanos.add(elapsed);
+            if (status == FAILED || (status >= 400 && status < errors.length())) {
+                errors.incrementAndGet(status);
+            }
+            return elapsed;
+        }
+
+        /** Stops with the response's status and returns the response, so a handler can end in one return. */
+        public <R extends ResponseEntity<?>> R stop(long start, R response) {
+            stop(start, response.getStatusCode().value());
+            return response;
+        }
+
+        /** Stops when the future completes; a failed future counts as FAILED. */
+        public <R extends ResponseEntity<?>> CompletableFuture<R> stopWhenDone(long start, CompletableFuture<R> future) {
+            return future.whenComplete((response, error) ->
+                    stop(start, error != null || response == null ? FAILED : response.getStatusCode().value()));
+        }
+
+        synchronized Snapshot snapshot(long now, long windowNanos) {
+            interval = recorder.getIntervalHistogram(interval);
+            count += interval.getTotalCount();
+            if (now - currentStartedAt >= windowNanos) {
+                previous.reset();
+                previous.add(current);
+                current.reset();
+                currentStartedAt = now;
+            }
+            current.add(interval);
+
+            Histogram window = previous.copy();
+            window.add(current);
+            double[] quantileNanos = new double[QUANTILES.length];
+            for (int i = 0; i < QUANTILES.length; i++) {
+                quantileNanos[i] = window.getTotalCount() == 0 ? Double.NaN : window.getValueAtPercentile(QUANTILES[i] * 100);
+            }
+            long[] errorCounts = new long[errors.length()];
+            for (int i = 0; i < errorCounts.length; i++) {
+                errorCounts[i] = errors.get(i);
+            }
+            return new Snapshot(labels, quantileNanos, totalNanos.sum(), count, errorCounts, inFlight.get());
+        }
+    }
+
+    private record Snapshot(String labels, double[] quantileNanos, long totalNanos, long count,
+                            long[] errors, long inFlight) {}
+}
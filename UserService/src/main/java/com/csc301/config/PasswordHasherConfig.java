@@ -0,0 +1,42 @@
+package com.csc301.config;
+
+import com.csc301.util.CachingPasswordHasher;
+import com.csc301.util.DelegatingPasswordHasher;
+import com.csc301.util.PasswordHasher;
+import com.csc301.util.Pbkdf2PasswordHasher;
+import com.csc301.util.Sha256PasswordHasher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class PasswordHasherConfig {
+
+    @Bean
+    public PasswordHasher passwordHasher(@Value("${password.algorithm:sha256}") String algorithm,
+                                         @Value("${password.pbkdf2.iterations:600000}") int iterations,
+                                         @Value("${password.verify-cache.max-entries:10000}") long cacheEntries,
+                                         @Value("${password.verify-cache.ttl-ms:600000}") long cacheTtlMs) {
+        PasswordHasher sha256 = new Sha256PasswordHasher();
+        // SHA-256 costs about what a cache hit does, so only the slow hash is worth caching
+        PasswordHasher pbkdf2 = new Pbkdf2PasswordHasher(iterations);
+        if (cacheEntries > 0) {
+            pbkdf2 = new CachingPasswordHasher(pbkdf2, cacheEntries, cacheTtlMs);
+        }
+
+        PasswordHasher current;
+        switch (algorithm.toLowerCase()) {
+            case "sha256":
+                current = sha256;
+                break;
+            case "pbkdf2-sha256":
+                current = pbkdf2;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown password.algorithm: " + algorithm);
+        }
+        return new DelegatingPasswordHasher(current, List.of(pbkdf2, sha256));
+    }
+}
@@ -0,0 +1,127 @@
+package com.csc301.config;
+
+import com.google.gson.JsonObject;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs controller work on separate bounded executors per request class, so slow writes and
+ * admin wipes queue behind each other instead of taking threads from cheap reads.
+ * A full queue rejects the request (503) rather than letting it wait on the Tomcat pool.
+ *
+ * With spring.threads.virtual.enabled (Java 21+) the pool threads are virtual: the pool size still
+ * caps concurrency per class, but a thread blocked on JDBC or ISCS no longer holds an OS thread.
+ */
+@Component
+public class RequestBulkhead {
+
+    public enum RequestClass { READ, WRITE, ADMIN }
+
+    private final Map<RequestClass, ThreadPoolTaskExecutor> executors = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, AtomicLong> rejections = new EnumMap<>(RequestClass.class);
+    private final long timeoutMs;
+    private final boolean virtualThreads;
+
+    public RequestBulkhead(@Value("${bulkhead.read.threads:100}") int readThreads,
+                           @Value("${bulkhead.read.queue:1000}") int readQueue,
+                           @Value("${bulkhead.write.threads:100}") int writeThreads,
+                           @Value("${bulkhead.write.queue:1000}") int writeQueue,
+                           @Value("${bulkhead.admin.threads:4}") int adminThreads,
+                           @Value("${bulkhead.admin.queue:16}") int adminQueue,
+                           @Value("${bulkhead.timeout-ms:30000}") long timeoutMs,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.timeoutMs = timeoutMs;
+        this.virtualThreads = virtualThreads;
+        executors.put(RequestClass.READ, newExecutor(RequestClass.READ, readThreads, readQueue));
+        executors.put(RequestClass.WRITE, newExecutor(RequestClass.WRITE, writeThreads, writeQueue));
+        executors.put(RequestClass.ADMIN, newExecutor(RequestClass.ADMIN, adminThreads, adminQueue));
+    }
+
+    public WebAsyncTask<ResponseEntity<?>> read(Callable<ResponseEntity<?>> work) {
+        return submit(RequestClass.READ, work);
+    }
+
+    public WebAsyncTask<ResponseEntity<?>> write(Callable<ResponseEntity<?>> work) {
+        return submit(RequestClass.WRITE, work);
+    }
+
+    public WebAsyncTask<ResponseEntity<?>> admin(Callable<ResponseEntity<?>> work) {
+        return submit(RequestClass.ADMIN, work);
+    }
+
+    /** Admin work with its own deadline, for jobs such as seed loads that outlast bulkhead.timeout-ms. */
+    public WebAsyncTask<ResponseEntity<?>> admin(Callable<ResponseEntity<?>> work, long timeoutMs) {
+        return submit(RequestClass.ADMIN, work, timeoutMs);
+    }
+
+    public AsyncTaskExecutor executor(RequestClass requestClass) {
+        return executors.get(requestClass);
+    }
+
+    /** Pool and queue occupancy per request class. */
+    public JsonObject stats() {
+        JsonObject stats = new JsonObject();
+        for (RequestClass requestClass : RequestClass.values()) {
+            ThreadPoolExecutor pool = executors.get(requestClass).getThreadPoolExecutor();
+            JsonObject entry = new JsonObject();
+            entry.addProperty("active", pool.getActiveCount());
+            entry.addProperty("poolSize", pool.getPoolSize());
+            entry.addProperty("maxPoolSize", pool.getMaximumPoolSize());
+            entry.addProperty("queued", pool.getQueue().size());
+            entry.addProperty("queueCapacity", pool.getQueue().size() + pool.getQueue().remainingCapacity());
+            entry.addProperty("completed", pool.getCompletedTaskCount());
+            entry.addProperty("rejected", rejections.get(requestClass).get());
+            stats.add(requestClass.name().toLowerCase(), entry);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    private WebAsyncTask<ResponseEntity<?>> submit(RequestClass requestClass, Callable<ResponseEntity<?>> work) {
+        return submit(requestClass, work, timeoutMs);
+    }
+
+    private WebAsyncTask<ResponseEntity<?>> submit(RequestClass requestClass, Callable<ResponseEntity<?>> work, long timeoutMs) {
+        WebAsyncTask<ResponseEntity<?>> task = new WebAsyncTask<>(timeoutMs, executors.get(requestClass), work);
+        task.onTimeout(() -> ResponseEntity.status(503).body("{\"error\": \"Request timed out\"}"));
+        return task;
+    }
+
+    private ThreadPoolTaskExecutor newExecutor(RequestClass requestClass, int threads, int queueCapacity) {
+        AtomicLong rejected = new AtomicLong();
+        rejections.put(requestClass, rejected);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(requestClass.name().toLowerCase() + "-");
+        if (virtualThreads) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor(requestClass.name().toLowerCase() + "-").getVirtualThreadFactory());
+        }
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setRejectedExecutionHandler((runnable, pool) -> {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException(requestClass + " queue is full");
+        });
+        executor.initialize();
+        return executor;
+    }
+}
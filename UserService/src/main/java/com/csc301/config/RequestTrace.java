@@ -0,0 +1,129 @@
+package com.csc301.config;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * A request's id and the time it spent in each phase, answered in the X-Request-Id and
+ * Server-Timing response headers ("db;dur=0.812, app;dur=1.304", durations in ms).
+ *
+ * OrderService assigns the id, or keeps the caller's, and forwards it on every call through ISCS;
+ * User and Product services echo it. Phases may be added from any thread. Repository time is
+ * collected as "db" for the trace the current thread is {@link #run running}.
+ */
+public final class RequestTrace {
+    public static final String ID_HEADER = "X-Request-Id";
+    public static final String TIMING_HEADER = "Server-Timing";
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final int MAX_ID_LENGTH = 128;
+
+    private final String id;
+    private final long startNanos = System.nanoTime();
+    // Guarded by this; phases keep the order they were first added in
+    private String[] names = new String[8];
+    private long[] nanos = new long[8];
+    private int size;
+
+    private RequestTrace(String id) {
+        this.id = id;
+    }
+
+    /** Starts a trace under the caller's id, or a fresh one if it sent none or an unusable one. */
+    public static RequestTrace begin(String requestId) {
+        boolean usable = requestId != null && !requestId.isEmpty() && requestId.length() <= MAX_ID_LENGTH
+                && requestId.chars().allMatch(c -> c > 0x20 && c < 0x7f && c != ',' && c != ';');
+        return new RequestTrace(usable ? requestId : Long.toHexString(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /** Adds nanos to the trace the current thread is running, if any. */
+    public static void addToCurrent(String phase, long nanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.add(phase, nanos);
+        }
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public synchronized void add(String phase, long phaseNanos) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(phase)) {
+                nanos[i] += phaseNanos;
+                return;
+            }
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        names[size] = phase;
+        nanos[size++] = phaseNanos;
+    }
+
+    /** Runs handler with this as the current thread's trace, then answers with an "app" phase covering it. */
+    public ResponseEntity<?> run(Supplier<ResponseEntity<?>> handler) {
+        RequestTrace outer = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return finish(handler.get(), "app");
+        } finally {
+            CURRENT.set(outer);
+        }
+    }
+
+    /** Copies response with the id and every phase so far, plus totalPhase covering the whole trace. */
+    public ResponseEntity<?> finish(ResponseEntity<?> response, String totalPhase) {
+        add(totalPhase, elapsedNanos());
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(ID_HEADER, id)
+                .header(TIMING_HEADER, serverTiming())
+                .body(response.getBody());
+    }
+
+    public synchronized String serverTiming() {
+        StringBuilder out = new StringBuilder(size * 20);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(names[i]).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos[i] / 1e6));
+        }
+        return out.toString();
+    }
+
+    /** The dur of metric in a Server-Timing header value, in nanoseconds, or -1 if it is not there. */
+    public static long durationNanos(String serverTiming, String metric) {
+        if (serverTiming == null) {
+            return -1;
+        }
+        for (String entry : serverTiming.split(",")) {
+            String[] params = entry.trim().split(";");
+            if (!params[0].equals(metric)) {
+                continue;
+            }
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("dur=")) {
+                    try {
+                        return (long) (Double.parseDouble(param.substring(4)) * 1e6);
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
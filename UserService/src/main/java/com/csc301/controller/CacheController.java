@@ -0,0 +1,26 @@
+package com.csc301.controller;
+
+import com.csc301.repository.IdBitmap;
+import com.csc301.repository.JsonBodyCache;
+import com.google.gson.JsonObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class CacheController {
+    @Autowired
+    private JsonBodyCache cache;
+
+    @Autowired
+    private IdBitmap userIds;
+
+    // Hit/miss/eviction counters for this replica's GET cache, plus the id bitmap's size
+    @GetMapping("/cache")
+    public ResponseEntity<?> stats() {
+        JsonObject stats = cache.stats();
+        stats.add("idBitmap", userIds.stats());
+        return ResponseEntity.ok(stats.toString());
+    }
+}
@@ -0,0 +1,37 @@
+package com.csc301.controller;
+
+/**
+ * A user create body checked against the create rules: either the fields to insert, or the status
+ * and error a create answers with. Shared by the create and bulk commands and the seed loader.
+ */
+public record NewUser(Integer id, String username, String email, String password, int status, String error) {
+
+    public static NewUser rejected(Integer id, int status, String error) {
+        return new NewUser(id, null, null, null, status, error);
+    }
+
+    /** Checks every rule except whether the id, username or email is already taken. */
+    public static NewUser check(UserCommand json) {
+        if (json == null || json.id() == null || json.username() == null || json.email() == null || json.password() == null) {
+            return rejected(null, 400, "Missing required fields");
+        }
+
+        Integer id = null;
+        try {
+            id = json.id().asInt();
+            if (!json.username().isString() || !json.email().isString() || !json.password().isString()) {
+                return rejected(id, 400, "Invalid field types");
+            }
+            String username = json.username().asString();
+            String email = json.email().asString();
+            String password = json.password().asString();
+
+            if (username.isEmpty() || email.isEmpty() || password.isEmpty()) {
+                return rejected(id, 400, "Fields cannot be empty");
+            }
+            return new NewUser(id, username, email, password, 200, null);
+        } catch (RuntimeException e) {
+            return rejected(id, 400, "Invalid field types");
+        }
+    }
+}
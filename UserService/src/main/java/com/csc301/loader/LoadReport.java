@@ -0,0 +1,63 @@
+package com.csc301.loader;
+
+import com.csc301.util.JsonBody;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** What one seed load did, line by line; answered by the load endpoint and printed by LoadCommand. */
+public class LoadReport {
+    private static final int MAX_ERRORS = 20;
+
+    private final long startNanos = System.nanoTime();
+    private final List<String> errors = new ArrayList<>();
+    private long lines;
+    private long skipped;
+    private long rejected;
+    private long rows;
+    private long inserted;
+    private long elapsedMs;
+
+    /** Counts a line and returns its 1-based number. */
+    long line() {
+        return ++lines;
+    }
+
+    /** A blank or comment line, or a command the loader does not handle. */
+    void skip() {
+        skipped++;
+    }
+
+    /** A create that broke one of the create rules; the first few are kept with their line numbers. */
+    void reject(long line, String error) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + line + ": " + error);
+        }
+    }
+
+    void finish(long rows, long inserted) {
+        this.rows = rows;
+        this.inserted = inserted;
+        this.elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public JsonBody toJson() {
+        return out -> {
+            out.beginObject()
+                    .name("lines").value(lines)
+                    .name("rows").value(rows)
+                    .name("inserted").value(inserted)
+                    .name("conflicts").value(rows - inserted)
+                    .name("rejected").value(rejected)
+                    .name("skipped").value(skipped)
+                    .name("ms").value(elapsedMs)
+                    .name("rowsPerSecond").value(elapsedMs > 0 ? rows * 1000 / elapsedMs : rows)
+                    .name("errors").beginArray();
+            for (String error : errors) {
+                out.value(error);
+            }
+            out.endArray().endObject();
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package com.csc301.loader;
+
+import com.csc301.controller.NewUser;
+import com.csc301.controller.UserCommand;
+import com.csc301.repository.IdBitmap;
+import com.csc301.repository.JsonBodyCache;
+import com.csc301.util.JsonField;
+import com.csc301.util.PasswordHasher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+
+/**
+ * Seeds the user table from a workload file or NDJSON through {@link CopyLoader}.
+ *
+ * Workload lines are "USER create <id> <username> <email> <password>", as WorkloadParser reads them,
+ * and every other command is skipped. NDJSON lines are POST /user create bodies, with or without the
+ * command. Each row must pass the same rules as a create, and its password is hashed like one.
+ * Loaded ids go into the id bitmap, and the GET cache is cleared once the load ends.
+ */
+@Component
+public class UserLoader {
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private IdBitmap userIds;
+
+    @Autowired
+    private JsonBodyCache userCache;
+
+    @Value("${loader.chunk-rows:50000}")
+    private int chunkRows;
+
+    @Value("${loader.queue-chunks:4}")
+    private int queueChunks;
+
+    public LoadReport load(BufferedReader in) throws Exception {
+        LoadReport report = new LoadReport();
+        CopyLoader.Session session = new CopyLoader(dataSource, "\"user\"", "id, username, email, password",
+                chunkRows, queueChunks).open(userIds::add);
+        try {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                long number = report.line();
+                UserCommand command = parse(line.trim());
+                if (command == null) {
+                    report.skip();
+                    continue;
+                }
+                NewUser user = NewUser.check(command);
+                if (user.error() != null) {
+                    report.reject(number, user.error());
+                    continue;
+                }
+                session.add(user.id(), user.username(), user.email(), passwordHasher.hash(user.password()));
+            }
+            report.finish(session.rows(), session.finish());
+            return report;
+        } catch (Exception e) {
+            session.abort();
+            throw e;
+        } finally {
+            userCache.invalidateAll();
+        }
+    }
+
+    // The create on line, or null if it is not one; unreadable JSON gives a command that fails the rules
+    private static UserCommand parse(String line) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+        if (line.startsWith("{")) {
+            UserCommand command;
+            try {
+                command = UserCommand.decode(line);
+            } catch (RuntimeException e) {
+                return new UserCommand(null, null, null, null, null, null);
+            }
+            boolean create = command.command() == null || "create".equalsIgnoreCase(command.command().asString());
+            return create ? command : null;
+        }
+        String[] parts = line.split("\\s+");
+        if (parts.length < 2 || !parts[0].equalsIgnoreCase("USER") || !parts[1].equalsIgnoreCase("create")) {
+            return null;
+        }
+        return new UserCommand(null, field(parts, 2), field(parts, 3), field(parts, 4), field(parts, 5), null);
+    }
+
+    private static JsonField field(String[] parts, int index) {
+        return index < parts.length ? JsonField.string(parts[index]) : null;
+    }
+}
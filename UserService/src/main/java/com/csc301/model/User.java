@@ -3,13 +3,17 @@ package com.csc301.model;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
-import java.security.MessageDigest;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+import org.springframework.data.domain.Persistable;
 import java.util.Objects;
 
 @Entity
 @Table(name = "\"user\"")
-public class User {
+public class User implements Persistable<Integer> {
     @Id
     @Column(name = "id")
     private int id;
@@ -23,32 +27,28 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    // Bumped by every update, which only applies if the row still has the version it was read at.
+    // The default lets COPY loads and rows from before this column leave it out
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // Ids are assigned up front, so tell Spring Data which rows are new to get a plain INSERT instead of merge
+    @Transient
+    private boolean isNew = true;
+
     public User() {}
 
-    public User(int id, String username, String email, String rawPassword) {
+    /** passwordHash is stored as given; hash raw passwords with the PasswordHasher bean first. */
+    public User(int id, String username, String email, String passwordHash) {
         this.id = id;
         this.username = username;
         this.email = email;
-        this.password = hashPassword(rawPassword);
+        this.password = passwordHash;
     }
 
-    public static String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes());
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString().toLowerCase();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to hash password", e);
-        }
-    }
-
-    public int getId() { return id; }
+    @Override
+    public Integer getId() { return id; }
     public void setId(int id) { this.id = id; }
 
     public String getUsername() { return username; }
@@ -59,9 +59,6 @@ public class User {
 
     public String getPassword() { return password; }
 
-    /** Sets password by hashing the provided raw password. */
-    public void setPassword(String rawPassword) { this.password = hashPassword(rawPassword); }
-
     /** Directly sets the stored password hash (used by JPA via field access). */
     public void setPasswordHash(String passwordHash) { 
         this.password = passwordHash; 
@@ -71,6 +68,15 @@ public class User {
         return password; 
     }
 
+    public long getVersion() { return version; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,163 @@
+package com.csc301.repository;
+
+import com.google.gson.JsonObject;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Compressed in-memory set of every live id in one table, so creating a new id skips its existence query.
+ *
+ * Loaded in the background once the application is ready; until then (or when disabled) every
+ * lookup falls through to the database. Only this replica's writes (and reloads, if a refresh
+ * interval is set) are applied, so the set can be stale in both directions: callers confirm a hit
+ * against the database, and only act on a miss where the insert itself catches a duplicate id.
+ */
+public class IdBitmap {
+    private final Supplier<List<Integer>> loader;
+    private final boolean enabled;
+    private final long refreshMs;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Writes seen while a reload is reading the table, replayed onto the fresh bitmap before it is swapped in
+    private final List<Consumer<RoaringBitmap>> changesDuringReload = new ArrayList<>();
+    private RoaringBitmap ids = new RoaringBitmap();
+    private boolean reloading;
+    private volatile boolean ready;
+    private ScheduledExecutorService scheduler;
+
+    public IdBitmap(Supplier<List<Integer>> loader, boolean enabled, long refreshMs) {
+        this.loader = loader;
+        this.enabled = enabled;
+        this.refreshMs = refreshMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "id-bitmap-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (refreshMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::reload, 0, refreshMs, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.execute(this::reload);
+        }
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /** True once loaded; until then {@link #contains} must not be trusted. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return ids.contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** False when the id was absent at the last load and this replica has not created it since. */
+    public boolean mightContain(int id) {
+        return !ready || contains(id);
+    }
+
+    public void add(int id) {
+        apply(bitmap -> bitmap.add(id));
+    }
+
+    public void addAll(int[] values) {
+        apply(bitmap -> bitmap.add(values));
+    }
+
+    public void remove(int id) {
+        apply(bitmap -> bitmap.remove(id));
+    }
+
+    public void clear() {
+        apply(RoaringBitmap::clear);
+    }
+
+    public JsonObject stats() {
+        lock.readLock().lock();
+        try {
+            JsonObject stats = new JsonObject();
+            stats.addProperty("ready", ready);
+            stats.addProperty("ids", ids.getLongCardinality());
+            stats.addProperty("bytes", ids.getLongSizeInBytes());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<RoaringBitmap> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(ids);
+            if (reloading) {
+                changesDuringReload.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reload() {
+        lock.writeLock().lock();
+        try {
+            reloading = true;
+            changesDuringReload.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        RoaringBitmap fresh = null;
+        try {
+            List<Integer> all = loader.get();
+            int[] values = new int[all.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = all.get(i);
+            }
+            fresh = RoaringBitmap.bitmapOf(values);
+            fresh.runOptimize();
+        } catch (Exception e) {
+            System.err.println("Failed to load id bitmap: " + e.getMessage());
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (fresh != null) {
+                for (Consumer<RoaringBitmap> change : changesDuringReload) {
+                    change.accept(fresh);
+                }
+                ids = fresh;
+                ready = true;
+            }
+            reloading = false;
+            changesDuringReload.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.csc301.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.gson.JsonObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Rendered GET responses by entity id, stored as the UTF-8 bytes written to the wire plus a strong ETag.
+ *
+ * Bounded by total body size with Caffeine's W-TinyLFU eviction. Every write path on this replica
+ * invalidates its id after the write commits; writes on other replicas are only seen once the
+ * entry expires, so the TTL bounds cross-replica staleness.
+ *
+ * Misses are loaded outside the cache, not inside Caffeine's compute, which would hold a map-bin
+ * monitor across the JDBC call and pin the carrier thread under virtual threads. A load that raced
+ * with an invalidation is returned but not cached, the same generation check {@code PurchaseCache} uses.
+ */
+@Component
+public class JsonBodyCache {
+    // Rough per-entry cost of the key, entry record, ETag string and Caffeine node
+    private static final int ENTRY_OVERHEAD = 160;
+
+    public record Entry(byte[] body, String etag) {
+        /** True if an If-None-Match header value names this entry's ETag. */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Cache<Integer, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public JsonBodyCache(@Value("${entity-cache.enabled:true}") boolean enabled,
+                         @Value("${entity-cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${entity-cache.ttl-ms:1000}") long ttlMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(enabled ? maxBytes : 0)
+                .weigher((Integer id, Entry entry) -> entry.body().length + ENTRY_OVERHEAD)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The cached entry for id, rendering it with loader on a miss. Returns null (and caches nothing)
+     * when loader returns null, i.e. the entity does not exist.
+     */
+    public Entry get(int id, IntFunction<String> loader) {
+        Entry cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        String json = loader.apply(id);
+        if (json == null) {
+            return null;
+        }
+        Entry loaded = entry(json);
+        // Decided under the key's lock, so an invalidate either sees this entry or has already bumped the generation
+        cache.asMap().compute(id, (key, current) -> generation.get() == loadedAt ? loaded : current);
+        return loaded;
+    }
+
+    public void invalidate(int id) {
+        generation.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /** Hit/miss/eviction counters and current size. */
+    public JsonObject stats() {
+        CacheStats stats = cache.stats();
+        JsonObject json = new JsonObject();
+        json.addProperty("hits", stats.hitCount());
+        json.addProperty("misses", stats.missCount());
+        json.addProperty("hitRate", stats.hitRate());
+        json.addProperty("evictions", stats.evictionCount());
+        json.addProperty("evictedBytes", stats.evictionWeight());
+        json.addProperty("entries", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction -> {
+            json.addProperty("bytes", eviction.weightedSize().orElse(0));
+            json.addProperty("maxBytes", eviction.getMaximum());
+        });
+        return json;
+    }
+
+    static Entry entry(String json) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new Entry(body, "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
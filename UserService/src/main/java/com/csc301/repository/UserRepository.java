@@ -2,11 +2,35 @@ package com.csc301.repository;
 
 import com.csc301.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.id FROM User u")
+    List<Integer> findAllIds();
+
+    // Set-based conflict checks for bulk creates: which of the given values are already taken, in one query each
+    @Query(value = "SELECT id FROM \"user\" WHERE id = ANY(:ids)", nativeQuery = true)
+    List<Integer> findExistingIds(@Param("ids") Integer[] ids);
+
+    @Query(value = "SELECT username FROM \"user\" WHERE username = ANY(:usernames)", nativeQuery = true)
+    List<String> findExistingUsernames(@Param("usernames") String[] usernames);
+
+    @Query(value = "SELECT email FROM \"user\" WHERE email = ANY(:emails)", nativeQuery = true)
+    List<String> findExistingEmails(@Param("emails") String[] emails);
+
+    // Empties the table in constant time, however many rows it holds; CASCADE also empties the order tables that reference it
+    @Transactional
+    @Modifying
+    @Query(value = "TRUNCATE TABLE \"user\" CASCADE", nativeQuery = true)
+    void truncate();
 }
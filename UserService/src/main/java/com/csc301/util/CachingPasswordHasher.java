@@ -0,0 +1,74 @@
+package com.csc301.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * Remembers recent successful verifications of a slow hasher, so a client repeating the same
+ * credentials (retrying a delete, say) pays for one HMAC instead of another full hash.
+ *
+ * Entries are keyed by the stored value and hold an HMAC of the raw password under a key drawn at
+ * startup, so the cache holds neither the password nor anything that can be checked outside this
+ * process. A changed password changes the stored value, so stale entries are never consulted.
+ * Failed verifications are not cached.
+ */
+public final class CachingPasswordHasher implements PasswordHasher {
+    private final PasswordHasher delegate;
+    private final Cache<String, byte[]> verified;
+    private final ThreadLocal<Mac> mac;
+
+    public CachingPasswordHasher(PasswordHasher delegate, long maxEntries, long ttlMs) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec spec = new SecretKeySpec(key, "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(spec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+    }
+
+    @Override
+    public String hash(String password) {
+        return delegate.hash(password);
+    }
+
+    @Override
+    public boolean matches(String password, String stored) {
+        if (!delegate.recognizes(stored)) {
+            return false;
+        }
+        byte[] tag = mac.get().doFinal(password.getBytes(StandardCharsets.UTF_8));
+        byte[] cached = verified.getIfPresent(stored);
+        if (cached != null && MessageDigest.isEqual(cached, tag)) {
+            return true;
+        }
+        if (!delegate.matches(password, stored)) {
+            return false;
+        }
+        verified.put(stored, tag);
+        return true;
+    }
+
+    @Override
+    public boolean recognizes(String stored) {
+        return delegate.recognizes(stored);
+    }
+}
@@ -0,0 +1,43 @@
+package com.csc301.util;
+
+import java.util.List;
+
+/**
+ * Hashes new passwords with the configured hasher and verifies each stored value with whichever
+ * known hasher recognizes its format, so switching algorithms leaves existing rows verifiable and
+ * migrates each user the next time their password is set.
+ */
+public final class DelegatingPasswordHasher implements PasswordHasher {
+    private final PasswordHasher current;
+    private final List<PasswordHasher> known;
+
+    public DelegatingPasswordHasher(PasswordHasher current, List<PasswordHasher> known) {
+        this.current = current;
+        this.known = List.copyOf(known);
+    }
+
+    @Override
+    public String hash(String password) {
+        return current.hash(password);
+    }
+
+    @Override
+    public boolean matches(String password, String stored) {
+        for (PasswordHasher hasher : known) {
+            if (hasher.recognizes(stored)) {
+                return hasher.matches(password, stored);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean recognizes(String stored) {
+        for (PasswordHasher hasher : known) {
+            if (hasher.recognizes(stored)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
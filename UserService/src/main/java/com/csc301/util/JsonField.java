@@ -0,0 +1,166 @@
+package com.csc301.util;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * One member value of a request body, kept as the token text the streaming reader produced.
+ *
+ * Nothing is converted while decoding: the accessors convert on demand and behave like Gson's
+ * JsonElement accessors (numbers as strings, strings as numbers, single-element arrays unwrapped),
+ * so the controllers reject exactly the payloads they did when they walked a parsed tree.
+ */
+public final class JsonField {
+    public enum Kind { STRING, NUMBER, BOOLEAN, NULL, OBJECT, ARRAY }
+
+    private static final JsonField TRUE = new JsonField(Kind.BOOLEAN, "true", null);
+    private static final JsonField FALSE = new JsonField(Kind.BOOLEAN, "false", null);
+    private static final JsonField NULL = new JsonField(Kind.NULL, null, null);
+    private static final JsonField OBJECT = new JsonField(Kind.OBJECT, null, null);
+    private static final JsonField ARRAY = new JsonField(Kind.ARRAY, null, null);
+
+    private final Kind kind;
+    private final String text;
+    // Sole element of a one-element array; null for any other array size
+    private final JsonField only;
+
+    private JsonField(Kind kind, String text, JsonField only) {
+        this.kind = kind;
+        this.text = text;
+        this.only = only;
+    }
+
+    /** A string value that did not come from a JSON body, such as a token of a workload file line. */
+    public static JsonField string(String text) {
+        return new JsonField(Kind.STRING, text, null);
+    }
+
+    /** Reads the next value; objects and all but the first array element are skipped, not kept. */
+    public static JsonField read(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case STRING:
+                return new JsonField(Kind.STRING, in.nextString(), null);
+            case NUMBER:
+                return new JsonField(Kind.NUMBER, in.nextString(), null);
+            case BOOLEAN:
+                return in.nextBoolean() ? TRUE : FALSE;
+            case NULL:
+                in.nextNull();
+                return NULL;
+            case BEGIN_OBJECT:
+                in.skipValue();
+                return OBJECT;
+            case BEGIN_ARRAY:
+                in.beginArray();
+                JsonField first = null;
+                int size = 0;
+                while (in.hasNext()) {
+                    if (size++ == 0) {
+                        first = read(in);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endArray();
+                return size == 1 ? new JsonField(Kind.ARRAY, null, first) : ARRAY;
+            default:
+                throw new IllegalStateException("Unexpected token: " + in.peek());
+        }
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /** A JSON string, as opposed to a number or boolean that can still be read as one. */
+    public boolean isString() {
+        return kind == Kind.STRING;
+    }
+
+    public boolean isNumber() {
+        return kind == Kind.NUMBER;
+    }
+
+    public boolean isArray() {
+        return kind == Kind.ARRAY;
+    }
+
+    public String asString() {
+        switch (kind) {
+            case STRING:
+            case NUMBER:
+            case BOOLEAN:
+                return text;
+            case ARRAY:
+                return single().asString();
+            default:
+                throw new UnsupportedOperationException("Not a primitive: " + kind);
+        }
+    }
+
+    public double asDouble() {
+        switch (kind) {
+            case STRING:
+            case NUMBER:
+            case BOOLEAN:
+                return Double.parseDouble(text);
+            case ARRAY:
+                return single().asDouble();
+            default:
+                throw new UnsupportedOperationException("Not a primitive: " + kind);
+        }
+    }
+
+    /** Lenient int: fractional numbers are truncated, as Gson's getAsInt does. */
+    public int asInt() {
+        switch (kind) {
+            case NUMBER:
+                try {
+                    return Integer.parseInt(text);
+                } catch (NumberFormatException e) {
+                    try {
+                        return (int) Long.parseLong(text);
+                    } catch (NumberFormatException ignored) {
+                        return new BigDecimal(text).intValue();
+                    }
+                }
+            case STRING:
+            case BOOLEAN:
+                return Integer.parseInt(text);
+            case ARRAY:
+                return single().asInt();
+            default:
+                throw new UnsupportedOperationException("Not a primitive: " + kind);
+        }
+    }
+
+    /** Strict int: anything with a fractional part (or not a number at all) is rejected. */
+    public int asIntStrict() {
+        double value = asDouble();
+        if (value % 1 != 0) {
+            throw new IllegalArgumentException("Non-integer value: " + text);
+        }
+        return (int) value;
+    }
+
+    /** Strict long, for values such as row versions that can outgrow an int. */
+    public long asLongStrict() {
+        if (kind == Kind.ARRAY) {
+            return single().asLongStrict();
+        }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return new BigDecimal(asString()).longValueExact();
+        }
+    }
+
+    private JsonField single() {
+        if (only == null) {
+            throw new IllegalStateException("Array must have exactly one element");
+        }
+        return only;
+    }
+}
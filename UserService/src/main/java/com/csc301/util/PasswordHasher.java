@@ -0,0 +1,30 @@
+package com.csc301.util;
+
+/**
+ * Turns raw passwords into the value stored in the user table, and checks raw passwords against it.
+ *
+ * Stored values carry their format: unsalted SHA-256 hex, the original format, has no prefix and
+ * every other format starts with "$id$". Implementations must be thread-safe.
+ */
+public interface PasswordHasher {
+
+    String hash(String password);
+
+    /** True if password hashes to stored; never throws for a stored value in another format. */
+    boolean matches(String password, String stored);
+
+    /** True if stored is in this hasher's format. */
+    boolean recognizes(String stored);
+
+    /** String equality whose running time depends only on the lengths, not on where the first difference is. */
+    static boolean constantTimeEquals(String a, String b) {
+        if (a.length() != b.length()) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < a.length(); i++) {
+            diff |= a.charAt(i) ^ b.charAt(i);
+        }
+        return diff == 0;
+    }
+}
@@ -0,0 +1,93 @@
+package com.csc301.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Unsalted SHA-256 as lowercase hex: the format every existing row and the A1 test responses use.
+ *
+ * Each thread keeps its own digest and scratch buffers, so a hash allocates only the returned
+ * String (plus the UTF-8 bytes for a non-ASCII password). Under virtual threads every request runs
+ * on a fresh thread and gets fresh state; that state is a clone of a prototype digest, which skips
+ * the provider lookup MessageDigest.getInstance does.
+ */
+public final class Sha256PasswordHasher implements PasswordHasher {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final MessageDigest PROTOTYPE = newDigest();
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    @Override
+    public String hash(String password) {
+        State state = STATE.get();
+        MessageDigest digest = state.digest;
+        int length = password.length();
+        if (length > state.ascii.length) {
+            state.ascii = new byte[Math.max(length, state.ascii.length * 2)];
+        }
+        byte[] ascii = state.ascii;
+        int i = 0;
+        while (i < length) {
+            char c = password.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            ascii[i++] = (byte) c;
+        }
+        if (i == length) {
+            digest.update(ascii, 0, length);
+        } else {
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] hash = state.hash;
+        try {
+            digest.digest(hash, 0, hash.length);
+        } catch (DigestException e) {
+            digest.reset();
+            throw new IllegalStateException("Failed to hash password", e);
+        }
+        char[] hex = state.hex;
+        for (int j = 0; j < hash.length; j++) {
+            hex[2 * j] = HEX[(hash[j] >> 4) & 0xf];
+            hex[2 * j + 1] = HEX[hash[j] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    @Override
+    public boolean matches(String password, String stored) {
+        return recognizes(stored) && PasswordHasher.constantTimeEquals(hash(password), stored);
+    }
+
+    @Override
+    public boolean recognizes(String stored) {
+        return stored != null && !stored.startsWith("$");
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class State {
+        final MessageDigest digest;
+        final byte[] hash = new byte[32];
+        final char[] hex = new char[64];
+        byte[] ascii = new byte[64];
+
+        State() {
+            MessageDigest digest;
+            try {
+                digest = (MessageDigest) PROTOTYPE.clone();
+            } catch (CloneNotSupportedException e) {
+                digest = newDigest();
+            }
+            this.digest = digest;
+        }
+    }
+}
@@ -6,7 +6,8 @@ CREATE TABLE IF NOT EXISTS "user" (
     id INTEGER PRIMARY KEY,
     username VARCHAR(255) NOT NULL UNIQUE,
     email VARCHAR(255) NOT NULL UNIQUE,
-    password VARCHAR(255) NOT NULL
+    password VARCHAR(255) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Products table
@@ -15,7 +16,8 @@ CREATE TABLE IF NOT EXISTS product (
     name VARCHAR(255) NOT NULL,
     description VARCHAR(1000),
     price DECIMAL(10, 2) NOT NULL,
-    quantity INTEGER NOT NULL DEFAULT 0
+    quantity INTEGER NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 -- Orders table (UUID primary key set by the application)
@@ -28,6 +30,27 @@ CREATE TABLE IF NOT EXISTS "order" (
     FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
 );
 
+-- Per-user purchase totals, upserted in the same transaction as each order insert
+CREATE TABLE IF NOT EXISTS user_purchase (
+    user_id INTEGER NOT NULL,
+    product_id INTEGER NOT NULL,
+    total_quantity BIGINT NOT NULL,
+    PRIMARY KEY (user_id, product_id),
+    FOREIGN KEY (user_id) REFERENCES "user"(id) ON DELETE CASCADE,
+    FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+);
+
+-- Stock a ProductService replica has leased out of product.quantity to sell hot products from memory;
+-- written back every flush, so updated_at going stale marks a replica that died holding it
+CREATE TABLE IF NOT EXISTS product_stock_lease (
+    product_id INTEGER NOT NULL,
+    replica VARCHAR(255) NOT NULL,
+    quantity INTEGER NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (product_id, replica),
+    FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+);
+
 -- Indexes for better query performance
 CREATE INDEX IF NOT EXISTS idx_order_user_id ON "order"(user_id);
 CREATE INDEX IF NOT EXISTS idx_order_product_id ON "order"(product_id);
@@ -0,0 +1,52 @@
+#!/bin/bash
+# Runs the same fixed-rate order load against the Docker stack twice, once on platform threads and once
+# with VIRTUAL_THREADS_ENABLED=true, and prints throughput, p99 latency and mean RSS per replica.
+# Usage (from the repo root): profiling/compare_threads.sh [rate] [duration]
+set -euo pipefail
+RATE=${1:-4000}
+DURATION=${2:-60s}
+TARGET_URL=${TARGET_URL:-http://localhost:4001}
+OUT=${OUT:-/tmp/thread-compare}
+mkdir -p "$OUT"
+
+wait_for_stack() {
+  for _ in $(seq 1 120); do
+    if curl -s -o /dev/null -X POST "$TARGET_URL/restart"; then return 0; fi
+    sleep 1
+  done
+  echo "stack did not come up" >&2
+  exit 1
+}
+
+# Mean resident memory in MiB over all replicas of one compose service
+mean_rss() {
+  docker stats --no-stream --format '{{.Name}} {{.MemUsage}}' \
+    | awk -v svc="$1" '$1 ~ svc {
+        split($2, m, /[A-Za-z]+/); unit = $2; gsub(/[0-9.]/, "", unit);
+        mib = m[1] * (unit == "GiB" ? 1024 : unit == "KiB" ? 1 / 1024 : 1);
+        total += mib; n++
+      } END { if (n) printf "%.0f", total / n; else printf "-" }'
+}
+
+docker compose build -q
+for mode in false true; do
+  label=$([ "$mode" = true ] && echo virtual || echo platform)
+  VIRTUAL_THREADS_ENABLED=$mode docker compose up -d --force-recreate
+  wait_for_stack
+  k6 run -q -e RATE="$RATE" -e DURATION="$DURATION" -e TARGET_URL="$TARGET_URL" \
+    --summary-trend-stats "avg,med,p(95),p(99)" --summary-export "$OUT/$label.json" profiling/k6_orders.js > "$OUT/$label.log" 2>&1 || true
+  # Sampled right after the run, while pools and heaps are still at their loaded size
+  echo "$(mean_rss user-service) $(mean_rss product-service) $(mean_rss order-service)" > "$OUT/$label.rss"
+done
+
+printf "%-9s %10s %10s %14s %17s %15s\n" mode "req/s" "p99 ms" "user RSS MiB" "product RSS MiB" "order RSS MiB"
+for label in platform virtual; do
+  read -r user product order < "$OUT/$label.rss"
+  python3 - "$OUT/$label.json" "$label" "$user" "$product" "$order" <<'PY'
+import json, sys
+metrics = json.load(open(sys.argv[1]))["metrics"]
+duration = metrics["http_req_duration"]
+p99 = duration["p(99)"]
+print("%-9s %10.0f %10.1f %14s %17s %15s" % (sys.argv[2], metrics["http_reqs"]["rate"], p99, *sys.argv[3:6]))
+PY
+done
@@ -0,0 +1,76 @@
+import http from "k6/http";
+import { check } from "k6";
+
+// Steady product reads alongside a burst of order writes, to check read p99 stays flat
+// while the write bulkhead fills up.
+// Usage: k6 run -e READ_RATE=2000 -e WRITE_RATE=4000 -e TARGET_URL=http://localhost:4001 k6_bulkhead.js
+const READ_RATE = parseInt(__ENV.READ_RATE || "2000");
+const WRITE_RATE = parseInt(__ENV.WRITE_RATE || "4000");
+const PRODUCTS = parseInt(__ENV.PRODUCTS || "500");
+const USERS = parseInt(__ENV.USERS || "500");
+const BASE_URL = __ENV.TARGET_URL || "http://localhost:4001";
+const HEADERS = { headers: { "Content-Type": "application/json" } };
+
+export const options = {
+  scenarios: {
+    reads: {
+      executor: "constant-arrival-rate",
+      exec: "readProduct",
+      rate: READ_RATE,
+      timeUnit: "1s",
+      duration: "90s",
+      preAllocatedVUs: 200,
+      maxVUs: 2000,
+    },
+    write_burst: {
+      executor: "constant-arrival-rate",
+      exec: "placeOrder",
+      rate: WRITE_RATE,
+      timeUnit: "1s",
+      startTime: "30s",
+      duration: "30s",
+      preAllocatedVUs: 500,
+      maxVUs: 4000,
+    },
+  },
+  thresholds: {
+    "http_req_duration{scenario:reads}": ["p(99)<100"],
+  },
+};
+
+export function setup() {
+  for (let id = 1; id <= USERS; id++) {
+    http.post(`${BASE_URL}/user`, JSON.stringify({
+      command: "create",
+      id: id,
+      username: `loaduser_${id}`,
+      email: `loaduser_${id}@email.com`,
+      password: "password123",
+    }), HEADERS);
+  }
+  for (let id = 1; id <= PRODUCTS; id++) {
+    http.post(`${BASE_URL}/product`, JSON.stringify({
+      command: "create",
+      id: id,
+      name: `loadproduct_${id}`,
+      description: "Load test product",
+      price: 9.99,
+      quantity: 1000000000,
+    }), HEADERS);
+  }
+}
+
+export function readProduct() {
+  const res = http.get(`${BASE_URL}/product/${1 + Math.floor(Math.random() * PRODUCTS)}`);
+  check(res, { "product read": (r) => r.status === 200 });
+}
+
+export function placeOrder() {
+  const res = http.post(`${BASE_URL}/order`, JSON.stringify({
+    command: "place order",
+    user_id: 1 + Math.floor(Math.random() * USERS),
+    product_id: 1 + Math.floor(Math.random() * PRODUCTS),
+    quantity: 1,
+  }), HEADERS);
+  check(res, { "order accepted or shed": (r) => r.status === 200 || r.status === 503 });
+}
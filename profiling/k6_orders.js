@@ -0,0 +1,62 @@
+import http from "k6/http";
+import { check } from "k6";
+
+// Order-placement load at a fixed arrival rate, for comparing per-order latency between builds.
+// Usage: k6 run -e RATE=4000 -e TARGET_URL=http://localhost:4001 k6_orders.js
+const RATE = parseInt(__ENV.RATE || "4000");
+const USERS = parseInt(__ENV.USERS || "500");
+const PRODUCTS = parseInt(__ENV.PRODUCTS || "500");
+const BASE_URL = __ENV.TARGET_URL || "http://localhost:4001";
+const HEADERS = { headers: { "Content-Type": "application/json" } };
+
+export const options = {
+  scenarios: {
+    orders: {
+      executor: "constant-arrival-rate",
+      rate: RATE,
+      timeUnit: "1s",
+      duration: __ENV.DURATION || "60s",
+      preAllocatedVUs: 500,
+      maxVUs: 4000,
+    },
+  },
+  thresholds: {
+    http_req_failed: ["rate<0.01"],
+    http_req_duration: ["p(99)<1000"],
+  },
+};
+
+export function setup() {
+  for (let id = 1; id <= USERS; id++) {
+    http.post(`${BASE_URL}/user`, JSON.stringify({
+      command: "create",
+      id: id,
+      username: `loaduser_${id}`,
+      email: `loaduser_${id}@email.com`,
+      password: "password123",
+    }), HEADERS);
+  }
+  for (let id = 1; id <= PRODUCTS; id++) {
+    http.post(`${BASE_URL}/product`, JSON.stringify({
+      command: "create",
+      id: id,
+      name: `loadproduct_${id}`,
+      description: "Load test product",
+      price: 9.99,
+      quantity: 1000000000,
+    }), HEADERS);
+  }
+}
+
+export default function () {
+  const res = http.post(`${BASE_URL}/order`, JSON.stringify({
+    command: "place order",
+    user_id: 1 + Math.floor(Math.random() * USERS),
+    product_id: 1 + Math.floor(Math.random() * PRODUCTS),
+    quantity: 1,
+  }), HEADERS);
+
+  check(res, {
+    "order placed": (r) => r.status === 200,
+  });
+}
@@ -0,0 +1,44 @@
+#!/bin/bash
+# Runs every service's JMH suites and records the results as JSON under profiling/jmh-results/<commit>/,
+# one file per service. With BASELINE=<an earlier results dir> it also prints each score's change.
+# Usage (from the repo root): profiling/run_benchmarks.sh [extra JMH args, e.g. a benchmark regex or "-f 1 -wi 1"]
+set -euo pipefail
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+COMMIT=$(git -C "$ROOT" rev-parse --short HEAD)$(git -C "$ROOT" diff --quiet HEAD || echo -dirty)
+OUT=${OUT:-$ROOT/profiling/jmh-results/$COMMIT}
+mkdir -p "$OUT"
+
+for svc in UserService ProductService OrderService; do
+  name=$(echo "${svc%Service}" | tr '[:upper:]' '[:lower:]')
+  (cd "$ROOT/$svc" && mvn -B -q -Pbenchmark integration-test \
+    -Djmh.args="$* -prof gc -rf json -rff $OUT/$name.json")
+  # The generated JMH harness needs jmh-core, so a later plain `mvn test` cannot load it
+  rm -rf "$ROOT/$svc/dependency-reduced-pom.xml" "$ROOT/$svc/target/test-classes" "$ROOT/$svc/target/generated-test-sources"
+done
+echo "results in $OUT"
+
+if [ -n "${BASELINE:-}" ]; then
+  python3 - "$BASELINE" "$OUT" <<'PY'
+import json, os, sys
+
+def scores(directory):
+    result = {}
+    for file in sorted(os.listdir(directory)):
+        if not file.endswith(".json"):
+            continue
+        for run in json.load(open(os.path.join(directory, file))):
+            params = ",".join("%s=%s" % kv for kv in sorted(run.get("params", {}).items()))
+            key = run["benchmark"].rsplit(".", 2)[-2:] + [run["mode"], params]
+            result[" ".join(k for k in key if k)] = (run["primaryMetric"]["score"], run["primaryMetric"]["scoreUnit"])
+    return result
+
+before, after = scores(sys.argv[1]), scores(sys.argv[2])
+for key in sorted(after):
+    score, unit = after[key]
+    if key in before and before[key][0]:
+        change = "%+.1f%%" % (100.0 * (score - before[key][0]) / before[key][0])
+    else:
+        change = "new"
+    print("%-70s %14.3f %-8s %8s" % (key, score, unit, change))
+PY
+fi
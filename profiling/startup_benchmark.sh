@@ -0,0 +1,77 @@
+#!/bin/bash
+# Starts each service repeatedly and reports the time from launch to its first successful request, and its
+# resident memory at that moment, for every build that is present: the plain jar, the fast-start build
+# (mvn -Pfast-start package: Spring AOT + AppCDS, schema validated instead of migrated) and the native image
+# (mvn -Pnative native:compile). Needs Postgres up; each run listens on a port of its own, so a running stack
+# is left alone.
+# Usage (from the repo root): profiling/startup_benchmark.sh [runs per build, default 5]
+set -euo pipefail
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+RUNS=${1:-5}
+PORT=${PORT:-18100}
+
+# The request that counts as served: reads that need the database and the context, but change nothing
+probe() {
+  case "$1" in
+    user) echo "GET /user/0" ;;
+    product) echo "GET /product/0" ;;
+    # Any other first command would wipe the data
+    order) echo "POST /restart" ;;
+  esac
+}
+
+# Prints "<ms to first request> <RSS MiB>" for one launch of build in the service directory
+measure() {
+  local build=$1 name=$2 method path pid start code elapsed rss
+  read -r method path <<< "$(probe "$name")"
+  start=$(date +%s%N)
+  case "$build" in
+    jar)
+      SERVER_PORT=$PORT SERVER_ADDRESS=127.0.0.1 \
+        java -jar "target/$name-service-1.0.0.jar" ../config.json > /tmp/startup-$name.log 2>&1 & ;;
+    fast-start)
+      SERVER_PORT=$PORT SERVER_ADDRESS=127.0.0.1 DDL_AUTO=validate \
+        java -XX:SharedArchiveFile=target/fast-start/app.jsa -Dspring.aot.enabled=true \
+        -jar target/fast-start/app.jar ../config.json > /tmp/startup-$name.log 2>&1 & ;;
+    native)
+      SERVER_PORT=$PORT SERVER_ADDRESS=127.0.0.1 DDL_AUTO=validate \
+        "target/$name-service" ../config.json > /tmp/startup-$name.log 2>&1 & ;;
+  esac
+  pid=$!
+  code=000
+  for _ in $(seq 1 3000); do
+    code=$(curl -s -o /dev/null -w '%{http_code}' -X "$method" "http://127.0.0.1:$PORT$path" || true)
+    if [ "$code" != 000 ] && [ "$code" -lt 500 ]; then break; fi
+    if ! kill -0 "$pid" 2>/dev/null; then break; fi
+    sleep 0.01
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  rss=$(awk '/VmRSS/ { printf "%.0f", $2 / 1024 }' "/proc/$pid/status" 2>/dev/null || echo -)
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  if [ "$code" = 000 ] || [ "$code" -ge 500 ]; then
+    echo "$name ($build) never answered, see /tmp/startup-$name.log" >&2
+    exit 1
+  fi
+  echo "$elapsed $rss"
+}
+
+printf "%-8s %-11s %14s %14s %14s\n" service build "median ms" "min ms" "median RSS MiB"
+for svc in UserService ProductService OrderService; do
+  name=$(echo "${svc%Service}" | tr '[:upper:]' '[:lower:]')
+  cd "$ROOT/$svc"
+  for build in jar fast-start native; do
+    case "$build" in
+      jar) [ -f "target/$name-service-1.0.0.jar" ] || continue ;;
+      fast-start) [ -f target/fast-start/app.jsa ] || continue ;;
+      native) [ -x "target/$name-service" ] || continue ;;
+    esac
+    for _ in $(seq 1 "$RUNS"); do measure "$build" "$name"; done | python3 -c '
+import statistics, sys
+runs = [line.split() for line in sys.stdin]
+ms = [int(r[0]) for r in runs]
+rss = [int(r[1]) for r in runs if r[1] != "-"]
+print("%-8s %-11s %14.0f %14d %14s" % (sys.argv[1], sys.argv[2], statistics.median(ms), min(ms),
+                                       "%.0f" % statistics.median(rss) if rss else "-"))' "$name" "$build"
+  done
+done